@@ -0,0 +1,253 @@
+package cn.yyxx.support.encryption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import cn.yyxx.support.encryption.aes.AesEncrypt;
+import cn.yyxx.support.encryption.aes.AesEngine;
+import cn.yyxx.support.encryption.rsa.RsaUtils;
+
+/**
+ * encryption包的基准测试，每项与改动前的写法（每次调用新建流、Cipher、MessageDigest或重新解析密钥）对比
+ * <p>
+ * 结果以{@value #TAG}为tag输出，用{@code ./gradlew :library_support:connectedAndroidTest}运行，
+ * {@code adb logcat -s EncryptionBenchmark}查看
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+@RunWith(AndroidJUnit4.class)
+public class EncryptionBenchmark {
+
+    private static final String TAG = "EncryptionBenchmark";
+
+    private static final int WARMUP_ITERATIONS = 100;
+
+    private static final int MEASURED_ITERATIONS = 1000;
+
+    /**
+     * 约16KB的JSON，相当于一次上报的数据
+     */
+    private static final byte[] PAYLOAD = createPayload(16 * 1024);
+
+    private static final byte[] AES_KEY = "0123456789abcdef".getBytes();
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        final byte[] compressed = GzipUtils.compress(PAYLOAD);
+        assertArrayEquals(PAYLOAD, GzipUtils.decompress(compressed));
+        measure("gzip compress, new GZIPOutputStream", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                GZIPOutputStream gos = new GZIPOutputStream(bos);
+                gos.write(PAYLOAD);
+                gos.close();
+                bos.toByteArray();
+            }
+        });
+        measure("gzip compress, GzipUtils", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                GzipUtils.compress(PAYLOAD);
+            }
+        });
+        measure("gzip decompress, new GZIPInputStream", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(compressed));
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                byte[] buffer = new byte[256];
+                int count;
+                while ((count = gis.read(buffer)) > 0) {
+                    bos.write(buffer, 0, count);
+                }
+                gis.close();
+                bos.toByteArray();
+            }
+        });
+        measure("gzip decompress, GzipUtils", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                GzipUtils.decompress(compressed);
+            }
+        });
+    }
+
+    @Test
+    public void base64() throws Exception {
+        final String encoded = Base64.encodeToString(PAYLOAD, Base64.NO_WRAP);
+        assertEquals(encoded, Base64Codec.STANDARD.encodeToString(PAYLOAD));
+        measure("base64 encode, android.util.Base64", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                Base64.encodeToString(PAYLOAD, Base64.NO_WRAP);
+            }
+        });
+        measure("base64 encode, Base64Codec", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                Base64Codec.STANDARD.encodeToString(PAYLOAD);
+            }
+        });
+        measure("base64 decode, android.util.Base64", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                Base64.decode(encoded, Base64.NO_WRAP);
+            }
+        });
+        measure("base64 decode, Base64Codec", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                Base64Codec.STANDARD.decode(encoded);
+            }
+        });
+    }
+
+    @Test
+    public void digest() throws Exception {
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(PAYLOAD), DigestUtils.md5(PAYLOAD));
+        measure("md5, MessageDigest.getInstance", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                MessageDigest.getInstance("MD5").digest(PAYLOAD);
+            }
+        });
+        measure("md5, DigestUtils", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                DigestUtils.md5(PAYLOAD);
+            }
+        });
+        measure("crc32c, DigestUtils", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                DigestUtils.crc32c(PAYLOAD, 0, PAYLOAD.length);
+            }
+        });
+    }
+
+    @Test
+    public void aes() throws Exception {
+        final AesEngine engine = new AesEngine(AES_KEY);
+        assertArrayEquals(new AesEncrypt(AES_KEY).encrypt(PAYLOAD, 0, PAYLOAD.length),
+                engine.encrypt(PAYLOAD, 0, PAYLOAD.length));
+        measure("aes encrypt, new AesEncrypt", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                new AesEncrypt(AES_KEY).encrypt(PAYLOAD, 0, PAYLOAD.length);
+            }
+        });
+        measure("aes encrypt, AesEngine", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() throws Exception {
+                engine.encrypt(PAYLOAD, 0, PAYLOAD.length);
+            }
+        });
+    }
+
+    @Test
+    public void rsaKeyCache() throws Exception {
+        final String raw = "uid=10086&token=0123456789abcdef";
+        measure("rsa encrypt string, key parsed per call", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                RsaUtils.getKeyCache().clear();
+                RsaUtils.encryptByPublicKey(raw);
+            }
+        });
+        measure("rsa encrypt string, key cached", MEASURED_ITERATIONS, new Operation() {
+            @Override
+            public void run() {
+                RsaUtils.encryptByPublicKey(raw);
+            }
+        });
+    }
+
+    @Test
+    public void rsaSegmentedAndEnvelope() throws Exception {
+        final byte[] publicKey = Base64Codec.STANDARD.decode(RsaUtils.RSA_PUBLIC_1024_X509_PEM);
+        final byte[] privateKey = Base64Codec.STANDARD.decode(RsaUtils.RSA_PRIVATE_1024_X509_PEM);
+        final byte[] segmented = RsaUtils.encryptByPublicKeyForSpilt(PAYLOAD, publicKey);
+        final byte[] envelope = EnvelopeUtils.seal(PAYLOAD, publicKey);
+        assertArrayEquals(PAYLOAD, RsaUtils.decryptByPrivateKeyForSpilt(segmented, privateKey));
+        assertArrayEquals(PAYLOAD, EnvelopeUtils.open(envelope, privateKey));
+        int iterations = MEASURED_ITERATIONS / 10;
+        measure("16KB rsa segmented encrypt", iterations, new Operation() {
+            @Override
+            public void run() throws Exception {
+                RsaUtils.encryptByPublicKeyForSpilt(PAYLOAD, publicKey);
+            }
+        });
+        measure("16KB rsa segmented decrypt", iterations, new Operation() {
+            @Override
+            public void run() throws Exception {
+                RsaUtils.decryptByPrivateKeyForSpilt(segmented, privateKey);
+            }
+        });
+        measure("16KB envelope seal", iterations, new Operation() {
+            @Override
+            public void run() throws Exception {
+                EnvelopeUtils.seal(PAYLOAD, publicKey);
+            }
+        });
+        measure("16KB envelope open", iterations, new Operation() {
+            @Override
+            public void run() throws Exception {
+                EnvelopeUtils.open(envelope, privateKey);
+            }
+        });
+    }
+
+    private static void measure(String name, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long wall = System.nanoTime() - start;
+        Log.i(TAG, String.format(Locale.US, "%s: %.1f us per call", name, wall / 1000.0 / iterations));
+    }
+
+    private static byte[] createPayload(int size) {
+        StringBuilder sb = new StringBuilder(size + 128);
+        sb.append('[');
+        for (int i = 0; sb.length() < size - 1; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"event\":\"level_up\",\"role_id\":").append(i)
+                    .append(",\"level\":").append(i % 100)
+                    .append(",\"time\":").append(1792108800L + i).append('}');
+        }
+        sb.setLength(size - 1);
+        sb.append(']');
+        try {
+            return sb.toString().getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cn.yyxx.support.hawkeye;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 对比日志输出到logcat、同步写文件和{@link AsyncFileLogSink}时调用线程的耗时
+ * <p>
+ * 日志按批输出，每批之间休眠{@value #BATCH_INTERVAL_MS}ms，模拟业务中突发的日志，休眠时间不计入耗时。
+ * 结果以{@value #TAG}为tag输出，用{@code ./gradlew :library_support:connectedAndroidTest}运行，
+ * {@code adb logcat -s LogSinkBenchmark}查看
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+@RunWith(AndroidJUnit4.class)
+public class LogSinkBenchmark {
+
+    private static final String TAG = "LogSinkBenchmark";
+
+    private static final String LOG_TAG = "yyxx_benchmark";
+
+    private static final String MESSAGE = "level_up role_id=10086 level=42 server=s1 cost=12ms";
+
+    private static final int BATCHES = 100;
+
+    private static final int MESSAGES_PER_BATCH = 100;
+
+    private static final long BATCH_INTERVAL_MS = 10;
+
+    private File dir;
+
+    @Before
+    public void setUp() {
+        dir = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(),
+                "log-sink-benchmark");
+        deleteRecursively(dir);
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(dir);
+    }
+
+    @Test
+    public void logcat() throws Exception {
+        measure("logcat", new LogSink() {
+            @Override
+            public boolean isLoggable(int priority, String tag) {
+                return true;
+            }
+
+            @Override
+            public void log(int priority, String tag, String message, Throwable tr) {
+                Log.println(priority, tag, message);
+            }
+        });
+    }
+
+    @Test
+    public void synchronousFile() throws Exception {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dir, "sync.log"), true), "UTF-8");
+        try {
+            measure("file, written and flushed on the caller", new LogSink() {
+                @Override
+                public boolean isLoggable(int priority, String tag) {
+                    return true;
+                }
+
+                @Override
+                public void log(int priority, String tag, String message, Throwable tr) {
+                    try {
+                        writer.write(System.currentTimeMillis() + " " + tag + ": " + message + "\n");
+                        writer.flush();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void asyncFile() throws Exception {
+        AsyncFileLogSink sink = new AsyncFileLogSink(dir, "async");
+        try {
+            measure("AsyncFileLogSink", sink);
+            Log.i(TAG, "AsyncFileLogSink dropped " + sink.getDroppedCount() + " of "
+                    + BATCHES * MESSAGES_PER_BATCH + " messages");
+        } finally {
+            sink.close();
+        }
+    }
+
+    private static void measure(String name, LogSink sink) throws InterruptedException {
+        long total = 0;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES_PER_BATCH; i++) {
+                sink.log(Log.INFO, LOG_TAG, MESSAGE, null);
+            }
+            total += System.nanoTime() - start;
+            Thread.sleep(BATCH_INTERVAL_MS);
+        }
+        Log.i(TAG, String.format(Locale.US, "%s: %.0f ns per message on the calling thread", name,
+                (double) total / (BATCHES * MESSAGES_PER_BATCH)));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
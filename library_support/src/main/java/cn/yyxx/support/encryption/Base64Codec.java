@@ -0,0 +1,546 @@
+package cn.yyxx.support.encryption;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 查表实现的Base64编解码，结果直接写入预先算好大小的byte[]、char[]或ByteBuffer
+ * <p>
+ * {@link #STANDARD}的结果与{@link Base64Utils}逐字节相同。解码是宽松的，与Base64Utils一致：
+ * 跳过不在字母表中的字符（如换行），遇到位于每组第3、4位的'='时结束，末尾不完整的组尽量解出。
+ * 实例不可变，线程安全
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public final class Base64Codec {
+
+    private static final byte[] STANDARD_ALPHABET = alphabet('+', '/');
+
+    private static final byte[] URL_SAFE_ALPHABET = alphabet('-', '_');
+
+    private static final int MIME_LINE_LENGTH = 76;
+
+    private static final byte PAD = '=';
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * 分块处理时每块的字节数，是3和一行57字节的公倍数
+     */
+    private static final int CHUNK_SIZE = 57 * 3 * 24;
+
+    /**
+     * RFC 4648 标准字母表，带填充，不换行
+     */
+    public static final Base64Codec STANDARD = new Base64Codec(STANDARD_ALPHABET, true, 0);
+
+    /**
+     * RFC 4648 URL安全字母表（'-'和'_'），带填充，不换行
+     */
+    public static final Base64Codec URL_SAFE = new Base64Codec(URL_SAFE_ALPHABET, true, 0);
+
+    /**
+     * RFC 2045 MIME格式，标准字母表，每76个字符以"\r\n"换行，最后一行后不换行
+     */
+    public static final Base64Codec MIME = new Base64Codec(STANDARD_ALPHABET, true, MIME_LINE_LENGTH / 4);
+
+    private final byte[] encodeTable;
+    private final byte[] decodeTable;
+    private final boolean padding;
+    /**
+     * 每行的组数，每组4个字符，0表示不换行
+     */
+    private final int lineGroups;
+
+    private Base64Codec(byte[] encodeTable, boolean padding, int lineGroups) {
+        this.encodeTable = encodeTable;
+        this.padding = padding;
+        this.lineGroups = lineGroups;
+        this.decodeTable = new byte[256];
+        Arrays.fill(decodeTable, (byte) -1);
+        for (int i = 0; i < encodeTable.length; i++) {
+            decodeTable[encodeTable[i]] = (byte) i;
+        }
+    }
+
+    /**
+     * 同样的编码，但不写出末尾的'='
+     */
+    public Base64Codec withoutPadding() {
+        return padding ? new Base64Codec(encodeTable, false, lineGroups) : this;
+    }
+
+    // ---------------------------------------------------------------- 编码
+
+    /**
+     * length字节编码后的字符数
+     */
+    public int getEncodedLength(int length) {
+        long chars = padding ? (length + 2L) / 3 * 4 : (length * 4L + 2) / 3;
+        if (lineGroups > 0 && chars > 0) {
+            long groups = (chars + 3) / 4;
+            chars += (groups - 1) / lineGroups * 2;
+        }
+        if (chars > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("input too large: " + length);
+        }
+        return (int) chars;
+    }
+
+    public byte[] encode(byte[] src) {
+        byte[] dst = new byte[getEncodedLength(src.length)];
+        encode(src, 0, src.length, dst, 0);
+        return dst;
+    }
+
+    public String encodeToString(byte[] src) {
+        return new String(encode(src), US_ASCII);
+    }
+
+    /**
+     * 编码写入dst，dst的剩余空间至少为{@link #getEncodedLength(int)}
+     *
+     * @return 写入的字节数
+     */
+    public int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        if (lineGroups == 0) {
+            return encodeLine(src, offset, length, dst, dstOffset);
+        }
+        int lineBytes = lineGroups * 3;
+        int end = offset + length;
+        int position = dstOffset;
+        while (end - offset > lineBytes) {
+            position += encodeLine(src, offset, lineBytes, dst, position);
+            dst[position++] = '\r';
+            dst[position++] = '\n';
+            offset += lineBytes;
+        }
+        position += encodeLine(src, offset, end - offset, dst, position);
+        return position - dstOffset;
+    }
+
+    /**
+     * 编码写入dst，dst的剩余空间至少为{@link #getEncodedLength(int)}
+     *
+     * @return 写入的字符数
+     */
+    public int encode(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        byte[] chunk = new byte[getEncodedLength(Math.min(length, CHUNK_SIZE))];
+        int end = offset + length;
+        int position = dstOffset;
+        do {
+            int count = Math.min(end - offset, CHUNK_SIZE);
+            int encoded = encode(src, offset, count, chunk, 0);
+            for (int i = 0; i < encoded; i++) {
+                dst[position++] = (char) chunk[i];
+            }
+            offset += count;
+            if (lineGroups > 0 && offset < end) {
+                dst[position++] = '\r';
+                dst[position++] = '\n';
+            }
+        } while (offset < end);
+        return position - dstOffset;
+    }
+
+    /**
+     * 编码src中position到limit的数据写入dst，两者的position都会前移
+     *
+     * @return 写入的字节数
+     */
+    public int encode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int encodedLength = getEncodedLength(length);
+        if (dst.remaining() < encodedLength) {
+            throw new IllegalArgumentException("dst too small, " + encodedLength + " bytes required");
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            encode(src.array(), src.arrayOffset() + src.position(), length,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + encodedLength);
+            return encodedLength;
+        }
+        byte[] in = new byte[Math.min(length, CHUNK_SIZE)];
+        byte[] out = new byte[getEncodedLength(in.length)];
+        do {
+            int count = Math.min(src.remaining(), CHUNK_SIZE);
+            src.get(in, 0, count);
+            dst.put(out, 0, encode(in, 0, count, out, 0));
+            if (lineGroups > 0 && src.hasRemaining()) {
+                dst.put((byte) '\r').put((byte) '\n');
+            }
+        } while (src.hasRemaining());
+        return encodedLength;
+    }
+
+    /**
+     * 把写入的数据编码后写到out，关闭时写出末尾的组并关闭out
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new EncoderOutputStream(out);
+    }
+
+    /**
+     * 不换行地编码，length不是3的倍数时写出末尾的组
+     */
+    private int encodeLine(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        byte[] table = encodeTable;
+        int end = offset + length / 3 * 3;
+        int position = dstOffset;
+        while (offset < end) {
+            int bits = (src[offset] & 0xff) << 16 | (src[offset + 1] & 0xff) << 8 | (src[offset + 2] & 0xff);
+            offset += 3;
+            dst[position] = table[bits >>> 18];
+            dst[position + 1] = table[(bits >>> 12) & 0x3f];
+            dst[position + 2] = table[(bits >>> 6) & 0x3f];
+            dst[position + 3] = table[bits & 0x3f];
+            position += 4;
+        }
+        int remaining = length % 3;
+        if (remaining == 1) {
+            int b1 = src[offset] & 0xff;
+            dst[position++] = table[b1 >>> 2];
+            dst[position++] = table[(b1 << 4) & 0x3f];
+            if (padding) {
+                dst[position++] = PAD;
+                dst[position++] = PAD;
+            }
+        } else if (remaining == 2) {
+            int b1 = src[offset] & 0xff;
+            int b2 = src[offset + 1] & 0xff;
+            dst[position++] = table[b1 >>> 2];
+            dst[position++] = table[((b1 << 4) | (b2 >>> 4)) & 0x3f];
+            dst[position++] = table[(b2 << 2) & 0x3f];
+            if (padding) {
+                dst[position++] = PAD;
+            }
+        }
+        return position - dstOffset;
+    }
+
+    // ---------------------------------------------------------------- 解码
+
+    /**
+     * 解码后的最大字节数，输入是规范的Base64时即为实际字节数
+     */
+    public int getMaxDecodedLength(byte[] src, int offset, int length) {
+        int pads = 0;
+        while (pads < 2 && length - pads > 0 && src[offset + length - pads - 1] == PAD) {
+            pads++;
+        }
+        return (int) ((long) (length - pads) * 6 / 8);
+    }
+
+    public byte[] decode(String src) {
+        return decode(src.getBytes(ISO_8859_1));
+    }
+
+    public byte[] decode(byte[] src) {
+        byte[] dst = new byte[getMaxDecodedLength(src, 0, src.length)];
+        int count = decode(src, 0, src.length, dst, 0);
+        return count == dst.length ? dst : Arrays.copyOf(dst, count);
+    }
+
+    /**
+     * 解码写入dst，dst的剩余空间至少为{@link #getMaxDecodedLength(byte[], int, int)}
+     *
+     * @return 写入的字节数
+     */
+    public int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        DecodeState state = new DecodeState();
+        int count = decode(src, offset, length, dst, dstOffset, state);
+        return count + state.finish(dst, dstOffset + count);
+    }
+
+    /**
+     * 解码src中position到limit的数据写入dst，两者的position都会前移
+     *
+     * @return 写入的字节数
+     */
+    public int decode(ByteBuffer src, ByteBuffer dst) {
+        int length = src.remaining();
+        int pads = 0;
+        while (pads < 2 && length - pads > 0 && src.get(src.limit() - pads - 1) == PAD) {
+            pads++;
+        }
+        int maxLength = (int) ((long) (length - pads) * 6 / 8);
+        if (dst.remaining() < maxLength) {
+            throw new IllegalArgumentException("dst too small, " + maxLength + " bytes required");
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            int count = decode(src.array(), src.arrayOffset() + src.position(), length,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + count);
+            return count;
+        }
+        DecodeState state = new DecodeState();
+        byte[] in = new byte[Math.min(length, CHUNK_SIZE)];
+        byte[] out = new byte[in.length / 4 * 3 + 3];
+        int total = 0;
+        while (src.hasRemaining() && !state.finished) {
+            int count = Math.min(src.remaining(), in.length);
+            src.get(in, 0, count);
+            int decoded = decode(in, 0, count, out, 0, state);
+            dst.put(out, 0, decoded);
+            total += decoded;
+        }
+        src.position(src.limit());
+        int decoded = state.finish(out, 0);
+        dst.put(out, 0, decoded);
+        return total + decoded;
+    }
+
+    /**
+     * 从in读出的数据解码后返回，关闭时关闭in
+     */
+    public InputStream wrap(InputStream in) {
+        return new DecoderInputStream(in);
+    }
+
+    /**
+     * 解码完整的组，不完整的组留在state中，遇到结束的'='后不再解码
+     */
+    private int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset, DecodeState state) {
+        byte[] table = decodeTable;
+        int end = offset + length;
+        int position = dstOffset;
+        int bits = state.bits;
+        int count = state.count;
+        boolean finished = state.finished;
+        while (offset < end && !finished) {
+            if (count == 0) {
+                // 连续4个有效字符时整组解码
+                while (end - offset >= 4) {
+                    int b1 = table[src[offset] & 0xff];
+                    int b2 = table[src[offset + 1] & 0xff];
+                    int b3 = table[src[offset + 2] & 0xff];
+                    int b4 = table[src[offset + 3] & 0xff];
+                    if ((b1 | b2 | b3 | b4) < 0) {
+                        break;
+                    }
+                    int value = b1 << 18 | b2 << 12 | b3 << 6 | b4;
+                    dst[position] = (byte) (value >> 16);
+                    dst[position + 1] = (byte) (value >> 8);
+                    dst[position + 2] = (byte) value;
+                    position += 3;
+                    offset += 4;
+                }
+                if (offset == end) {
+                    break;
+                }
+            }
+            int c = src[offset++] & 0xff;
+            int value = table[c];
+            if (value < 0) {
+                if (c == PAD && count >= 2) {
+                    finished = true;
+                }
+                continue;
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                dst[position] = (byte) (bits >> 16);
+                dst[position + 1] = (byte) (bits >> 8);
+                dst[position + 2] = (byte) bits;
+                position += 3;
+                bits = 0;
+                count = 0;
+            }
+        }
+        state.bits = bits;
+        state.count = count;
+        state.finished = finished;
+        return position - dstOffset;
+    }
+
+    private static byte[] alphabet(char c62, char c63) {
+        byte[] table = new byte[64];
+        int i = 0;
+        for (char c = 'A'; c <= 'Z'; c++) {
+            table[i++] = (byte) c;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[i++] = (byte) c;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            table[i++] = (byte) c;
+        }
+        table[i++] = (byte) c62;
+        table[i] = (byte) c63;
+        return table;
+    }
+
+    /**
+     * 跨多次解码的状态
+     */
+    private static final class DecodeState {
+        int bits;
+        int count;
+        boolean finished;
+
+        /**
+         * 写出末尾不完整的组
+         *
+         * @return 写入的字节数
+         */
+        int finish(byte[] dst, int dstOffset) {
+            int written = 0;
+            if (count == 2) {
+                dst[dstOffset] = (byte) (bits >> 4);
+                written = 1;
+            } else if (count == 3) {
+                dst[dstOffset] = (byte) (bits >> 10);
+                dst[dstOffset + 1] = (byte) (bits >> 2);
+                written = 2;
+            }
+            bits = 0;
+            count = 0;
+            finished = true;
+            return written;
+        }
+    }
+
+    private final class EncoderOutputStream extends FilterOutputStream {
+        /**
+         * 待编码的数据，大小是一行字节数的整数倍，写满且还有数据时才编码，保证末尾的组只在关闭时写出
+         */
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private final byte[] encoded = new byte[getEncodedLength(CHUNK_SIZE)];
+        private int count = 0;
+        private boolean separatorPending = false;
+        private boolean closed = false;
+
+        EncoderOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushBuffer();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            if (separatorPending) {
+                out.write('\r');
+                out.write('\n');
+            }
+            out.write(encoded, 0, encode(buffer, 0, count, encoded, 0));
+            separatorPending = lineGroups > 0;
+            count = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (count > 0) {
+                flushBuffer();
+            }
+            super.close();
+        }
+    }
+
+    private final class DecoderInputStream extends FilterInputStream {
+        private final byte[] input = new byte[CHUNK_SIZE];
+        private final byte[] decoded = new byte[CHUNK_SIZE / 4 * 3 + 3];
+        private final DecodeState state = new DecodeState();
+        private final byte[] single = new byte[1];
+        private int position = 0;
+        private int limit = 0;
+        private boolean eof = false;
+
+        DecoderInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == limit) {
+                if (eof) {
+                    return -1;
+                }
+                fill();
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(decoded, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private void fill() throws IOException {
+            position = 0;
+            int count = state.finished ? -1 : in.read(input, 0, input.length);
+            if (count == -1) {
+                limit = state.finish(decoded, 0);
+                eof = true;
+            } else {
+                limit = decode(input, 0, count, decoded, 0, state);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] b = new byte[(int) Math.min(n, 512)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(b, 0, (int) Math.min(b.length, n - skipped));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - position;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package cn.yyxx.support.encryption;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * 摘要与校验和：MD5、SHA-256、CRC32、CRC32C
+ * <p>
+ * 内存数据的一次性摘要复用本线程的MessageDigest，摘要和16进制结果可以写入调用方提供的数组；
+ * 流式数据用{@link #newDigester(String)}逐段更新；文件按{@link #MAP_CHUNK_SIZE}分段内存映射，
+ * 不会一次映射整个大文件。字符串一律按UTF-8编码，16进制结果为小写
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class DigestUtils {
+
+    public static final String MD5 = "MD5";
+
+    public static final String SHA_256 = "SHA-256";
+
+    public static final int MD5_LENGTH = 16;
+
+    public static final int SHA_256_LENGTH = 32;
+
+    /**
+     * 文件每次内存映射的字节数
+     */
+    public static final long MAP_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * java.util.zip.CRC32C在API 26才加入，低版本为null，使用查表实现{@link Crc32c}
+     */
+    private static final Constructor<?> CRC32C_CONSTRUCTOR = resolveCrc32c();
+
+    private static final ThreadLocal<Digests> DIGESTS = new ThreadLocal<Digests>() {
+        @Override
+        protected Digests initialValue() {
+            return new Digests();
+        }
+    };
+
+    private DigestUtils() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    // ---------------------------------------------------------------- MD5
+
+    public static byte[] md5(byte[] data) {
+        return digest(MD5, data, 0, data.length);
+    }
+
+    public static byte[] md5(String str) {
+        return md5(utf8(str));
+    }
+
+    public static String md5Hex(byte[] data) {
+        return digestHex(MD5, data, 0, data.length);
+    }
+
+    public static String md5Hex(String str) {
+        return md5Hex(utf8(str));
+    }
+
+    public static String md5Hex(File file) throws IOException {
+        return HexUtils.toLowerHexString(digest(MD5, file));
+    }
+
+    // ---------------------------------------------------------------- SHA-256
+
+    public static byte[] sha256(byte[] data) {
+        return digest(SHA_256, data, 0, data.length);
+    }
+
+    public static byte[] sha256(String str) {
+        return sha256(utf8(str));
+    }
+
+    public static String sha256Hex(byte[] data) {
+        return digestHex(SHA_256, data, 0, data.length);
+    }
+
+    public static String sha256Hex(String str) {
+        return sha256Hex(utf8(str));
+    }
+
+    public static String sha256Hex(File file) throws IOException {
+        return HexUtils.toLowerHexString(digest(SHA_256, file));
+    }
+
+    // ---------------------------------------------------------------- 通用
+
+    public static byte[] digest(String algorithm, byte[] data, int offset, int length) {
+        MessageDigest md = DIGESTS.get().get(algorithm);
+        md.update(data, offset, length);
+        return md.digest();
+    }
+
+    /**
+     * 摘要写入dst，不分配内存
+     *
+     * @param dst 剩余空间至少为摘要长度
+     * @return 写入的字节数
+     */
+    public static int digest(String algorithm, byte[] data, int offset, int length, byte[] dst, int dstOffset) {
+        MessageDigest md = DIGESTS.get().get(algorithm);
+        md.update(data, offset, length);
+        try {
+            return md.digest(dst, dstOffset, dst.length - dstOffset);
+        } catch (DigestException e) {
+            md.reset();
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * 小写的16进制摘要写入dst，不分配内存
+     *
+     * @param dst 剩余空间至少为摘要长度 * 2
+     * @return 写入的字符数
+     */
+    public static int digestHex(String algorithm, byte[] data, int offset, int length, char[] dst, int dstOffset) {
+        Digests digests = DIGESTS.get();
+        int count = digest(algorithm, data, offset, length, digests.result, 0);
+        return HexUtils.encodeHex(digests.result, 0, count, dst, dstOffset);
+    }
+
+    public static String digestHex(String algorithm, byte[] data, int offset, int length) {
+        Digests digests = DIGESTS.get();
+        int count = digest(algorithm, data, offset, length, digests.result, 0);
+        char[] chars = new char[count * 2];
+        HexUtils.encodeHex(digests.result, 0, count, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * 读取输入流的全部数据计算摘要，输入流不会被关闭
+     */
+    public static byte[] digest(String algorithm, InputStream in) throws IOException {
+        MessageDigest md = newMessageDigest(algorithm);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            md.update(buffer, 0, count);
+        }
+        return md.digest();
+    }
+
+    /**
+     * 分段内存映射计算文件摘要
+     */
+    public static byte[] digest(String algorithm, File file) throws IOException {
+        MessageDigest md = newMessageDigest(algorithm);
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long chunk = Math.min(MAP_CHUNK_SIZE, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+                md.update(buffer);
+                position += chunk;
+            }
+        } finally {
+            in.close();
+        }
+        return md.digest();
+    }
+
+    /**
+     * 逐段更新的摘要，用于边下载边校验等流式场景
+     */
+    public static Digester newDigester(String algorithm) {
+        return new Digester(newMessageDigest(algorithm));
+    }
+
+    // ---------------------------------------------------------------- CRC
+
+    public static long crc32(byte[] data, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, offset, length);
+        return crc32.getValue();
+    }
+
+    public static long crc32(File file) throws IOException {
+        return checksum(new CRC32(), file);
+    }
+
+    /**
+     * API 26以上使用java.util.zip.CRC32C，低版本使用查表实现，结果相同
+     */
+    public static Checksum newCrc32c() {
+        if (CRC32C_CONSTRUCTOR != null) {
+            try {
+                return (Checksum) CRC32C_CONSTRUCTOR.newInstance();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return new Crc32c();
+    }
+
+    public static long crc32c(byte[] data, int offset, int length) {
+        Checksum checksum = newCrc32c();
+        checksum.update(data, offset, length);
+        return checksum.getValue();
+    }
+
+    public static long crc32c(File file) throws IOException {
+        return checksum(newCrc32c(), file);
+    }
+
+    /**
+     * 用给定的Checksum计算文件校验和；Checksum在API 26以下不能直接接受ByteBuffer，因此按块读取
+     */
+    public static long checksum(Checksum checksum, File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                checksum.update(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        return checksum.getValue();
+    }
+
+    // ---------------------------------------------------------------- 内部
+
+    private static MessageDigest newMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] utf8(String str) {
+        try {
+            return str.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Constructor<?> resolveCrc32c() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").getConstructor();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 本线程复用的MessageDigest和结果数组
+     */
+    private static class Digests {
+        private MessageDigest md5;
+        private MessageDigest sha256;
+        final byte[] result = new byte[64];
+
+        /**
+         * 返回已重置的MessageDigest，MD5和SHA-256复用，其他算法每次新建
+         */
+        MessageDigest get(String algorithm) {
+            if (MD5.equals(algorithm)) {
+                if (md5 == null) {
+                    md5 = newMessageDigest(MD5);
+                }
+                return md5;
+            }
+            if (SHA_256.equals(algorithm)) {
+                if (sha256 == null) {
+                    sha256 = newMessageDigest(SHA_256);
+                }
+                return sha256;
+            }
+            return newMessageDigest(algorithm);
+        }
+    }
+
+    /**
+     * 查表计算的CRC32C（Castagnoli多项式，反射形式0x82F63B78），用于API 26以下
+     */
+    static final class Crc32c implements Checksum {
+
+        private static final int[] TABLE = new int[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                int crc = i;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+                }
+                TABLE[i] = crc;
+            }
+        }
+
+        private int crc = 0xFFFFFFFF;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            if (off < 0 || len < 0 || off > b.length - len) {
+                throw new ArrayIndexOutOfBoundsException();
+            }
+            int value = crc;
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                value = (value >>> 8) ^ TABLE[(value ^ b[i]) & 0xFF];
+            }
+            crc = value;
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xFFFFFFFF;
+        }
+    }
+
+    /**
+     * 逐段更新的摘要，不是线程安全的
+     */
+    public static class Digester {
+
+        private final MessageDigest md;
+        private byte[] result;
+
+        Digester(MessageDigest md) {
+            this.md = md;
+        }
+
+        public Digester update(byte[] data) {
+            md.update(data, 0, data.length);
+            return this;
+        }
+
+        public Digester update(byte[] data, int offset, int length) {
+            md.update(data, offset, length);
+            return this;
+        }
+
+        /**
+         * 读取position到limit的数据，position会前移
+         */
+        public Digester update(ByteBuffer data) {
+            md.update(data);
+            return this;
+        }
+
+        public Digester update(String str) {
+            return update(utf8(str));
+        }
+
+        /**
+         * 完成摘要并重置，可以继续计算下一条数据
+         */
+        public byte[] digest() {
+            return md.digest();
+        }
+
+        /**
+         * 完成摘要并重置，小写的16进制写入dst，不分配内存
+         *
+         * @param dst 剩余空间至少为摘要长度 * 2
+         * @return 写入的字符数
+         */
+        public int digestHex(char[] dst, int dstOffset) {
+            if (result == null) {
+                result = new byte[64];
+            }
+            int count;
+            try {
+                count = md.digest(result, 0, result.length);
+            } catch (DigestException e) {
+                md.reset();
+                throw new IllegalStateException(e);
+            }
+            return HexUtils.encodeHex(result, 0, count, dst, dstOffset);
+        }
+
+        public String digestHex() {
+            return HexUtils.toLowerHexString(md.digest());
+        }
+
+        public int getDigestLength() {
+            return md.getDigestLength();
+        }
+
+        public void reset() {
+            md.reset();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package cn.yyxx.support.encryption;
+
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+
+import javax.crypto.BadPaddingException;
+
+import cn.yyxx.support.encryption.aes.AesGcmEngine;
+import cn.yyxx.support.encryption.rsa.RsaUtils;
+
+/**
+ * RSA + AES 数字信封加密
+ * <p>
+ * 每次生成随机的AES-256会话密钥，用RSA公钥只加密一次会话密钥，数据本身用AES-GCM加密，
+ * 比每245字节做一次RSA运算的分段加密快得多，并且带完整性校验。格式为：
+ * <pre>
+ * 魔数"YENV"(4字节) + 版本(1字节) + RSA密文长度(2字节，大端) + RSA加密的会话密钥 + AES-GCM消息
+ * </pre>
+ * AES-GCM消息的格式见{@link AesGcmEngine}
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class EnvelopeUtils {
+
+    /**
+     * 超过该字节数的数据用数字信封，否则用RSA分段加密；RSA一块就能放下的数据没有必要再做AES
+     */
+    public static final int DEFAULT_THRESHOLD = RsaUtils.DEFAULT_BUFFERSIZE;
+
+    public static final byte VERSION = 1;
+
+    private static final byte[] MAGIC = {'Y', 'E', 'N', 'V'};
+
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 2;
+
+    private static final int SESSION_KEY_LENGTH = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private EnvelopeUtils() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 按数据大小选择加密方式：不超过{@link #DEFAULT_THRESHOLD}时与{@link RsaUtils#encryptByPublicKeyForSpilt(byte[], byte[])}
+     * 相同，否则为数字信封。两种结果都可以用{@link #decrypt(byte[], byte[])}解密
+     *
+     * @param publicKey X.509编码的公钥
+     */
+    public static byte[] encrypt(byte[] data, byte[] publicKey) throws Exception {
+        return encrypt(data, publicKey, DEFAULT_THRESHOLD);
+    }
+
+    public static byte[] encrypt(byte[] data, byte[] publicKey, int threshold) throws Exception {
+        if (data.length <= threshold) {
+            return RsaUtils.encryptByPublicKeyForSpilt(data, publicKey);
+        }
+        return seal(data, publicKey);
+    }
+
+    /**
+     * 解密{@link #encrypt(byte[], byte[])}的结果，以魔数和版本开头的按数字信封解密，否则按RSA分段密文解密
+     *
+     * @param privateKey PKCS#8编码的私钥
+     * @throws BadPaddingException 数字信封被篡改或密钥不对
+     */
+    public static byte[] decrypt(byte[] encrypted, byte[] privateKey) throws Exception {
+        if (isEnvelope(encrypted)) {
+            // 认证失败直接抛出，不再当作分段密文解密，以免得到错误的明文
+            return open(encrypted, privateKey);
+        }
+        return RsaUtils.decryptByPrivateKeyForSpilt(encrypted, privateKey);
+    }
+
+    /**
+     * 数字信封加密
+     *
+     * @param publicKey X.509编码的公钥
+     */
+    public static byte[] seal(byte[] data, byte[] publicKey) throws Exception {
+        byte[] sessionKey = newSessionKey();
+        byte[] header = newHeader(RsaUtils.encryptByPublicKey(sessionKey, publicKey));
+        byte[] body = new AesGcmEngine(sessionKey).encrypt(data, 0, data.length);
+        byte[] envelope = new byte[header.length + body.length];
+        System.arraycopy(header, 0, envelope, 0, header.length);
+        System.arraycopy(body, 0, envelope, header.length, body.length);
+        return envelope;
+    }
+
+    /**
+     * 数字信封解密
+     *
+     * @param privateKey PKCS#8编码的私钥
+     * @throws BadPaddingException 格式不对或数据被篡改
+     */
+    public static byte[] open(byte[] envelope, byte[] privateKey) throws Exception {
+        if (!isEnvelope(envelope)) {
+            throw new BadPaddingException("not an envelope");
+        }
+        int keyLength = ((envelope[HEADER_LENGTH - 2] & 0xff) << 8) | (envelope[HEADER_LENGTH - 1] & 0xff);
+        int bodyOffset = HEADER_LENGTH + keyLength;
+        if (envelope.length < bodyOffset + AesGcmEngine.OVERHEAD) {
+            throw new BadPaddingException("envelope too short");
+        }
+        byte[] wrappedKey = new byte[keyLength];
+        System.arraycopy(envelope, HEADER_LENGTH, wrappedKey, 0, keyLength);
+        AesGcmEngine engine = new AesGcmEngine(unwrapSessionKey(wrappedKey, privateKey));
+        return engine.decrypt(envelope, bodyOffset, envelope.length - bodyOffset);
+    }
+
+    /**
+     * 读取输入流的全部数据，数字信封加密后写到输出流，两个流都不会被关闭
+     *
+     * @param publicKey X.509编码的公钥
+     */
+    public static void seal(InputStream in, OutputStream out, byte[] publicKey) throws Exception {
+        byte[] sessionKey = newSessionKey();
+        out.write(newHeader(RsaUtils.encryptByPublicKey(sessionKey, publicKey)));
+        OutputStream cipherOut = new AesGcmEngine(sessionKey).newEncryptStream(new NonClosingOutputStream(out));
+        copy(in, cipherOut);
+        // 写出最后的密文和认证标签
+        cipherOut.close();
+    }
+
+    /**
+     * 读取输入流中的数字信封，解密后写到输出流，两个流都不会被关闭
+     * <p>
+     * 解密的数据边读边写，认证标签在最后才校验，校验失败时抛出异常，已写出的数据应当丢弃
+     *
+     * @param privateKey PKCS#8编码的私钥
+     */
+    public static void open(InputStream in, OutputStream out, byte[] privateKey) throws Exception {
+        byte[] header = new byte[HEADER_LENGTH];
+        readFully(in, header);
+        if (!isEnvelope(header)) {
+            throw new BadPaddingException("not an envelope");
+        }
+        byte[] wrappedKey = new byte[((header[HEADER_LENGTH - 2] & 0xff) << 8) | (header[HEADER_LENGTH - 1] & 0xff)];
+        readFully(in, wrappedKey);
+        AesGcmEngine engine = new AesGcmEngine(unwrapSessionKey(wrappedKey, privateKey));
+        InputStream plainIn = engine.newDecryptStream(in);
+        copy(plainIn, out);
+    }
+
+    /**
+     * 是否以数字信封的魔数和当前版本开头
+     */
+    public static boolean isEnvelope(byte[] data) {
+        if (data.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return data[MAGIC.length] == VERSION;
+    }
+
+    private static byte[] newSessionKey() {
+        byte[] sessionKey = new byte[SESSION_KEY_LENGTH];
+        RANDOM.nextBytes(sessionKey);
+        return sessionKey;
+    }
+
+    private static byte[] unwrapSessionKey(byte[] wrappedKey, byte[] privateKey) throws Exception {
+        byte[] sessionKey = RsaUtils.decryptByPrivateKey(wrappedKey, privateKey);
+        if (sessionKey.length != SESSION_KEY_LENGTH) {
+            throw new BadPaddingException("invalid session key");
+        }
+        return sessionKey;
+    }
+
+    private static byte[] newHeader(byte[] wrappedKey) {
+        byte[] header = new byte[HEADER_LENGTH + wrappedKey.length];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        header[HEADER_LENGTH - 2] = (byte) (wrappedKey.length >> 8);
+        header[HEADER_LENGTH - 1] = (byte) wrappedKey.length;
+        System.arraycopy(wrappedKey, 0, header, HEADER_LENGTH, wrappedKey.length);
+        return header;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int count = 0;
+        while (count < buffer.length) {
+            int read = in.read(buffer, count, buffer.length - count);
+            if (read == -1) {
+                throw new EOFException("envelope too short");
+            }
+            count += read;
+        }
+    }
+
+    /**
+     * 关闭时只flush，不关闭调用方的输出流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
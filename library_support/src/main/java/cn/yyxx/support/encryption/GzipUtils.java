@@ -2,52 +2,191 @@ package cn.yyxx.support.encryption;
 
 import android.text.TextUtils;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
+ * GZIP压缩与解压
+ * <p>
+ * 字节接口按RFC 1952直接读写gzip格式，结果与GZIPOutputStream/GZIPInputStream互通。
+ * 每个线程复用同一个Deflater/Inflater和缓冲区，压缩一批数据不再创建新的本地压缩流。
+ * 每个线程保留两个16KB的缓冲区、最多64KB的输出缓冲区，以及用过的Deflater/Inflater的本地zlib状态，
+ * 线程结束后才会被回收；线程池中只偶尔压缩的线程可以在用完后调用{@link #release()}立即释放
+ *
  * @author #Suyghur,
  * Created on 2021/1/27
  */
 public class GzipUtils {
 
+    /**
+     * 默认压缩级别，与GZIPOutputStream相同
+     */
+    public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * 线程复用的输出缓冲区超过该大小时不再保留
+     */
+    private static final int MAX_RETAINED_OUTPUT_SIZE = 64 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /**
+     * 与GZIPOutputStream写出的文件头相同
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final ThreadLocal<Codec> CODEC = new ThreadLocal<Codec>() {
+        @Override
+        protected Codec initialValue() {
+            return new Codec();
+        }
+    };
+
+    /**
+     * 释放当前线程的Deflater/Inflater和缓冲区，之后再使用时重新创建
+     */
+    public static void release() {
+        Codec codec = CODEC.get();
+        CODEC.remove();
+        codec.end();
+    }
+
+    /**
+     * 压缩字节数组
+     */
+    public static byte[] compress(byte[] data) throws IOException {
+        return compress(data, 0, data.length, DEFAULT_LEVEL);
+    }
+
+    /**
+     * 压缩字节数组
+     *
+     * @param level 压缩级别，0-9，或{@link #DEFAULT_LEVEL}
+     */
+    public static byte[] compress(byte[] data, int level) throws IOException {
+        return compress(data, 0, data.length, level);
+    }
+
+    public static byte[] compress(byte[] data, int offset, int length, int level) throws IOException {
+        Codec codec = CODEC.get();
+        Output out = codec.output(length / 2 + 64);
+        codec.beginDeflate(level, out);
+        codec.deflate(data, offset, length, out);
+        codec.finishDeflate(out);
+        return codec.release(out);
+    }
+
+    /**
+     * 压缩ByteBuffer中position到limit的数据，完成后position移到limit
+     *
+     * @return 包装压缩结果的ByteBuffer
+     */
+    public static ByteBuffer compress(ByteBuffer data, int level) throws IOException {
+        Codec codec = CODEC.get();
+        Output out = codec.output(data.remaining() / 2 + 64);
+        codec.beginDeflate(level, out);
+        if (data.hasArray()) {
+            codec.deflate(data.array(), data.arrayOffset() + data.position(), data.remaining(), out);
+            data.position(data.limit());
+        } else {
+            while (data.hasRemaining()) {
+                int count = Math.min(data.remaining(), codec.input.length);
+                data.get(codec.input, 0, count);
+                codec.deflate(codec.input, 0, count, out);
+            }
+        }
+        codec.finishDeflate(out);
+        return ByteBuffer.wrap(codec.release(out));
+    }
+
+    /**
+     * 读取输入流的全部数据压缩后写到输出流，两个流都不会被关闭
+     *
+     * @return 压缩前的字节数
+     */
+    public static long compress(InputStream in, OutputStream out, int level) throws IOException {
+        Codec codec = CODEC.get();
+        codec.beginDeflate(level, out);
+        long total = 0;
+        int count;
+        while ((count = in.read(codec.input)) != -1) {
+            codec.deflate(codec.input, 0, count, out);
+            total += count;
+        }
+        codec.finishDeflate(out);
+        return total;
+    }
+
+    /**
+     * 解压gzip数据，支持多个gzip成员首尾相接
+     */
+    public static byte[] decompress(byte[] data) throws IOException {
+        return decompress(data, 0, data.length);
+    }
+
+    public static byte[] decompress(byte[] data, int offset, int length) throws IOException {
+        Codec codec = CODEC.get();
+        Output out = codec.output(length * 3 + 64);
+        Source source = codec.source(data, offset, length);
+        codec.inflate(source, out);
+        return codec.release(out);
+    }
+
+    /**
+     * 解压ByteBuffer中position到limit的gzip数据，完成后position移到limit
+     *
+     * @return 包装解压结果的ByteBuffer
+     */
+    public static ByteBuffer decompress(ByteBuffer data) throws IOException {
+        Codec codec = CODEC.get();
+        Output out = codec.output(data.remaining() * 3 + 64);
+        Source source;
+        if (data.hasArray()) {
+            source = codec.source(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        } else {
+            source = codec.source(data);
+        }
+        codec.inflate(source, out);
+        return ByteBuffer.wrap(codec.release(out));
+    }
+
+    /**
+     * 读取输入流中的gzip数据解压后写到输出流，两个流都不会被关闭
+     *
+     * @return 解压后的字节数
+     */
+    public static long decompress(InputStream in, OutputStream out) throws IOException {
+        Codec codec = CODEC.get();
+        return codec.inflate(codec.source(in), out);
+    }
+
+    /**
+     * 压缩字符串，结果按ISO-8859-1编码为字符串，可用{@link #deCompress(String)}还原
+     */
     public static String compress(String str) {
         if (TextUtils.isEmpty(str)) {
             return str;
         }
-
-        ByteArrayOutputStream bos = null;
-        GZIPOutputStream gos = null;
-
         try {
-            //创建一个新的输出流
-            bos = new ByteArrayOutputStream();
-            //使用默认缓冲区创建新的输出流
-            gos = new GZIPOutputStream(bos);
-            //将字节写入
-            gos.write(str.getBytes("UTF-8"));
-            return bos.toString("ISO-8859-1");
+            return new String(compress(str.getBytes("UTF-8")), "ISO-8859-1");
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            if (gos != null) {
-                try {
-                    gos.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-
-            if (bos != null) {
-                try {
-                    bos.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
         return str;
     }
@@ -56,47 +195,298 @@ public class GzipUtils {
         if (TextUtils.isEmpty(str)) {
             return str;
         }
-
-        ByteArrayOutputStream bos = null;
-        ByteArrayInputStream bis = null;
-        GZIPInputStream gis = null;
         try {
-            bos = new ByteArrayOutputStream();
-            bis = new ByteArrayInputStream(str.getBytes("ISO-8859-1"));
-            gis = new GZIPInputStream(bis);
-            byte[] buffer = new byte[256];
-            int count = 0;
-            while ((count = gis.read(buffer)) > 0) {
-                bos.write(buffer, 0, count);
-            }
-            return bos.toString("UTF-8");
+            return new String(decompress(str.getBytes("ISO-8859-1")), "UTF-8");
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            if (gis != null) {
-                try {
-                    gis.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+        }
+        return str;
+    }
+
+    /**
+     * 可直接取出内部数组的输出流
+     */
+    private static class Output extends ByteArrayOutputStream {
+
+        Output(int size) {
+            super(size);
+        }
+
+        byte[] buf() {
+            return buf;
+        }
+    }
+
+    /**
+     * 压缩数据的来源：一段字节数组、输入流或ByteBuffer
+     */
+    private static class Source {
+        byte[] buf;
+        int pos;
+        int limit;
+        InputStream in;
+        ByteBuffer buffer;
+
+        /**
+         * 当前数据读完后读入下一段
+         *
+         * @return 没有更多数据时返回false
+         */
+        boolean fill() throws IOException {
+            if (in != null) {
+                int count = in.read(buf, 0, buf.length);
+                if (count <= 0) {
+                    return false;
                 }
+                pos = 0;
+                limit = count;
+                return true;
+            }
+            if (buffer != null && buffer.hasRemaining()) {
+                int count = Math.min(buffer.remaining(), buf.length);
+                buffer.get(buf, 0, count);
+                pos = 0;
+                limit = count;
+                return true;
+            }
+            return false;
+        }
+
+        boolean hasMore() throws IOException {
+            return pos < limit || fill();
+        }
+
+        int readByte() throws IOException {
+            if (!hasMore()) {
+                throw new EOFException("Unexpected end of gzip input");
             }
+            return buf[pos++] & 0xff;
+        }
+
+        int readShort() throws IOException {
+            return readByte() | (readByte() << 8);
+        }
+
+        long readInt() throws IOException {
+            return readShort() | ((long) readShort() << 16);
+        }
+
+        void skip(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                readByte();
+            }
+        }
+
+        void skipString() throws IOException {
+            while (readByte() != 0) {
+                // 以0结尾的字符串
+            }
+        }
+    }
+
+    /**
+     * 每个线程一份的压缩状态，不可重入
+     */
+    private static class Codec {
+        /**
+         * 用到时才创建，只压缩或只解压的线程不持有另一个的本地状态
+         */
+        Deflater deflater;
+        Inflater inflater;
+        final CRC32 crc = new CRC32();
+        final byte[] input = new byte[BUFFER_SIZE];
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final Source source = new Source();
+        Output output;
+
+        Output output(int size) {
+            Output out = output;
+            if (out == null) {
+                return new Output(Math.min(Math.max(size, 256), MAX_RETAINED_OUTPUT_SIZE));
+            }
+            output = null;
+            out.reset();
+            return out;
+        }
+
+        /**
+         * 取出结果，并在大小合适时留下输出缓冲区给下次使用
+         */
+        byte[] release(Output out) {
+            byte[] result = out.toByteArray();
+            if (out.buf().length <= MAX_RETAINED_OUTPUT_SIZE) {
+                output = out;
+            }
+            return result;
+        }
+
+        Source source(byte[] data, int offset, int length) {
+            source.buf = data;
+            source.pos = offset;
+            source.limit = offset + length;
+            source.in = null;
+            source.buffer = null;
+            return source;
+        }
+
+        Source source(InputStream in) {
+            source(input, 0, 0);
+            source.in = in;
+            return source;
+        }
+
+        Source source(ByteBuffer buffer) {
+            source(input, 0, 0);
+            source.buffer = buffer;
+            return source;
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+            }
+            output = null;
+        }
+
+        void beginDeflate(int level, OutputStream out) throws IOException {
+            if (deflater == null) {
+                deflater = new Deflater(DEFAULT_LEVEL, true);
+            }
+            deflater.reset();
+            deflater.setLevel(level);
+            crc.reset();
+            out.write(HEADER);
+        }
+
+        void deflate(byte[] data, int offset, int length, OutputStream out) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            crc.update(data, offset, length);
+            deflater.setInput(data, offset, length);
+            while (!deflater.needsInput()) {
+                int count = deflater.deflate(buffer, 0, buffer.length);
+                out.write(buffer, 0, count);
+            }
+        }
+
+        void finishDeflate(OutputStream out) throws IOException {
+            deflater.finish();
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer, 0, buffer.length);
+                out.write(buffer, 0, count);
+            }
+            writeInt(out, crc.getValue());
+            writeInt(out, deflater.getBytesRead());
+        }
 
-            if (bis != null) {
-                try {
-                    bis.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+        /**
+         * 解压所有gzip成员，最后一个成员之后不是gzip头的数据会被忽略，与GZIPInputStream一致
+         *
+         * @return 解压后的字节数
+         */
+        long inflate(Source source, OutputStream out) throws IOException {
+            try {
+                long total = 0;
+                readHeader(source);
+                while (true) {
+                    total += inflateMember(source, out);
+                    if (!source.hasMore()) {
+                        return total;
+                    }
+                    int first = source.readByte();
+                    if (first != (GZIP_MAGIC & 0xff) || !source.hasMore()
+                            || source.readByte() != (GZIP_MAGIC >> 8)) {
+                        return total;
+                    }
+                    readHeaderAfterMagic(source);
                 }
+            } finally {
+                // 不持有调用方的数据
+                source.buf = null;
+                source.in = null;
+                source.buffer = null;
             }
+        }
 
-            if (bos != null) {
-                try {
-                    bos.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+        private long inflateMember(Source source, OutputStream out) throws IOException {
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+            inflater.reset();
+            crc.reset();
+            long total = 0;
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        if (!source.hasMore()) {
+                            throw new EOFException("Unexpected end of gzip input");
+                        }
+                        inflater.setInput(source.buf, source.pos, source.limit - source.pos);
+                        source.pos = source.limit;
+                    }
+                    int count = inflater.inflate(buffer, 0, buffer.length);
+                    if (count > 0) {
+                        crc.update(buffer, 0, count);
+                        out.write(buffer, 0, count);
+                        total += count;
+                    } else if (inflater.needsDictionary()) {
+                        throw new ZipException("Unexpected preset dictionary");
+                    }
                 }
+            } catch (DataFormatException e) {
+                String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid deflate data");
+            }
+            // 未被Inflater使用的数据属于文件尾
+            source.pos -= inflater.getRemaining();
+            if (source.readInt() != crc.getValue()) {
+                throw new ZipException("Corrupt gzip trailer");
             }
+            if (source.readInt() != (total & 0xffffffffL)) {
+                throw new ZipException("Corrupt gzip trailer");
+            }
+            return total;
+        }
+
+        private void readHeader(Source source) throws IOException {
+            if (source.readShort() != GZIP_MAGIC) {
+                throw new ZipException("Not in GZIP format");
+            }
+            readHeaderAfterMagic(source);
+        }
+
+        private void readHeaderAfterMagic(Source source) throws IOException {
+            if (source.readByte() != Deflater.DEFLATED) {
+                throw new ZipException("Unsupported compression method");
+            }
+            int flags = source.readByte();
+            // mtime、xfl、os
+            source.skip(6);
+            if ((flags & FEXTRA) != 0) {
+                source.skip(source.readShort());
+            }
+            if ((flags & FNAME) != 0) {
+                source.skipString();
+            }
+            if ((flags & FCOMMENT) != 0) {
+                source.skipString();
+            }
+            if ((flags & FHCRC) != 0) {
+                source.skip(2);
+            }
+        }
+
+        private static void writeInt(OutputStream out, long value) throws IOException {
+            out.write((int) value & 0xff);
+            out.write((int) (value >> 8) & 0xff);
+            out.write((int) (value >> 16) & 0xff);
+            out.write((int) (value >> 24) & 0xff);
         }
-        return str;
     }
 }
@@ -6,6 +6,10 @@ package cn.yyxx.support.encryption;
  */
 public class HexUtils {
 
+    private static final char[] LOWER_HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private static final char[] UPPER_HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
     /**
      * @param src 16进制字符串
      * @return 字节数组
@@ -19,11 +23,41 @@ public class HexUtils {
         return ret;
     }
 
+    /**
+     * @return 大写的16进制字符串
+     */
     public static String bytes2HexString(byte[] b) {
-        StringBuilder result = new StringBuilder();
-        for (byte value : b) {
-            result.append(String.format("%02X", value));
+        char[] chars = new char[b.length * 2];
+        encodeHex(b, 0, b.length, chars, 0, UPPER_HEX_DIGITS);
+        return new String(chars);
+    }
+
+    /**
+     * @return 小写的16进制字符串
+     */
+    public static String toLowerHexString(byte[] b) {
+        char[] chars = new char[b.length * 2];
+        encodeHex(b, 0, b.length, chars, 0, LOWER_HEX_DIGITS);
+        return new String(chars);
+    }
+
+    /**
+     * 小写的16进制写入dst，不分配内存
+     *
+     * @param dst 剩余空间至少为length * 2
+     * @return 写入的字符数
+     */
+    public static int encodeHex(byte[] src, int offset, int length, char[] dst, int dstOffset) {
+        return encodeHex(src, offset, length, dst, dstOffset, LOWER_HEX_DIGITS);
+    }
+
+    private static int encodeHex(byte[] src, int offset, int length, char[] dst, int dstOffset, char[] digits) {
+        int end = offset + length;
+        int position = dstOffset;
+        for (int i = offset; i < end; i++) {
+            dst[position++] = digits[(src[i] >> 4) & 0x0f];
+            dst[position++] = digits[src[i] & 0x0f];
         }
-        return result.toString();
+        return length * 2;
     }
 }
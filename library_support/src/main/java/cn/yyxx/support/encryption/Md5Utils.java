@@ -1,14 +1,6 @@
 package cn.yyxx.support.encryption;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.math.BigInteger;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * @author #Suyghur.
@@ -16,10 +8,6 @@ import java.security.NoSuchAlgorithmException;
  */
 public class Md5Utils {
 
-    private static final String ALGORITHM = "MD5";
-
-    private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
-
     private Md5Utils() {
         /* cannot be instantiated */
         throw new UnsupportedOperationException("cannot be instantiated");
@@ -28,122 +16,47 @@ public class Md5Utils {
     /**
      * 加密
      *
-     * @param str 明文
+     * @param str 明文，按UTF-8编码
      * @return MD5密文
      */
     public static String encodeByMD5(String str) {
         if (str == null) {
             return null;
         }
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance(ALGORITHM);
-            messageDigest.update(str.getBytes());
-            return getFormattedText(messageDigest.digest());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-
+        return DigestUtils.md5Hex(str);
     }
 
     /**
-     * 获取文件Md5 VALUE（返回31位，有缺陷，建议用getFileMD5）
+     * 获取文件Md5 VALUE（返回32位，与getFileMD5相同）
      *
      * @param file 文件
-     * @return 文件的MD5数值
+     * @return 文件的MD5数值，出错时为null
      */
     public static String getMd5ByFile(File file) {
-        String value = null;
-        FileInputStream in = null;
         try {
-            in = new FileInputStream(file);
-            MappedByteBuffer byteBuffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
-            md5.update(byteBuffer);
-            BigInteger bi = new BigInteger(1, md5.digest());
-            value = bi.toString(16);
+            return DigestUtils.md5Hex(file);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (null != in) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+            return null;
         }
-        return value;
     }
 
 
     /**
      * 获取文件md5 （返回32位）
      *
-     * @param file
-     * @return
+     * @param file 文件
+     * @return 文件的MD5数值，文件不存在或出错时为""
      */
     public static String getFileMD5(File file) {
         if (!file.exists() || !file.isFile()) {
             return "";
         }
-
-        byte[] buffer = new byte[2048];
         try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            FileInputStream in = new FileInputStream(file);
-            while (true) {
-                int len = in.read(buffer, 0, 2048);
-                if (len != -1) {
-                    digest.update(buffer, 0, len);
-                } else {
-                    break;
-                }
-            }
-            in.close();
-
-            byte[] md5Bytes = digest.digest();
-            StringBuffer hexValue = new StringBuffer();
-            for (int i = 0; i < md5Bytes.length; i++) {
-                int val = ((int) md5Bytes[i]) & 0xff;
-                if (val < 16) {
-                    hexValue.append("0");
-                }
-                hexValue.append(Integer.toHexString(val));
-            }
-            return hexValue.toString();
-
-            //String hash = new BigInteger(1,digest.digest()).toString(16);
-            //return hash;
-
-        } catch (NoSuchAlgorithmException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            return "";
-        } catch (FileNotFoundException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            return "";
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
+            return DigestUtils.md5Hex(file);
+        } catch (Exception e) {
             e.printStackTrace();
             return "";
         }
     }
-
-    /**
-     * Takes the raw bytes from the digest and formats them correct.
-     *
-     * @param bytes the raw bytes from the digest.
-     * @return the formatted bytes.
-     */
-    private static String getFormattedText(byte[] bytes) {
-        int len = bytes.length;
-        StringBuilder buf = new StringBuilder(len * 2);
-        // 把密文转换成十六进制的字符串形式
-        for (int j = 0; j < len; j++) {
-            buf.append(HEX_DIGITS[(bytes[j] >> 4) & 0x0f]);
-            buf.append(HEX_DIGITS[bytes[j] & 0x0f]);
-        }
-        return buf.toString();
-    }
 }
@@ -8,6 +8,8 @@ public class AesCommon {
 
     protected static final String AES_CBC_PKCS5PADDING = "AES/CBC/PKCS5Padding";
 
+    protected static final String AES_GCM_NOPADDING = "AES/GCM/NoPadding";
+
     public static final int AES_IV_LENGTH = 16;
 
     /**
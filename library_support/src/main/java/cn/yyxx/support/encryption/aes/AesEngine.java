@@ -0,0 +1,148 @@
+package cn.yyxx.support.encryption.aes;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 绑定一个密钥的AES/CBC/PKCS5Padding加解密，线程安全
+ * <p>
+ * 每个线程缓存一个已初始化的加密Cipher和解密Cipher，doFinal后Cipher会回到初始化后的状态，
+ * 所以同一线程的后续调用不再需要Cipher.getInstance和init。
+ * 结果与{@link AesEncrypt}、{@link AesDecrypt}相同
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class AesEngine extends AesCommon {
+
+    private static final int AES_BLOCK_SIZE = 16;
+
+    private final SecretKeySpec keySpec;
+    private final IvParameterSpec ivSpec;
+
+    private final ThreadLocal<Cipher> encryptCipher = new ThreadLocal<Cipher>();
+    private final ThreadLocal<Cipher> decryptCipher = new ThreadLocal<Cipher>();
+
+    public AesEngine(byte[] aesKey) {
+        this(aesKey, generateIV(aesKey));
+    }
+
+    public AesEngine(byte[] aesKey, byte[] iv) {
+        if (aesKey == null || !(aesKey.length == 16 || aesKey.length == 32)) {
+            throw new RuntimeException("aes key should be 16 bytes(128bits) or 32 bytes(256bits)");
+        }
+        this.keySpec = new SecretKeySpec(aesKey, "AES");
+        this.ivSpec = new IvParameterSpec(iv, 0, iv.length);
+    }
+
+    public byte[] encrypt(byte[] buf, int offset, int length) throws GeneralSecurityException {
+        Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
+        try {
+            return cipher.doFinal(buf, offset, length);
+        } catch (GeneralSecurityException e) {
+            encryptCipher.remove();
+            throw e;
+        }
+    }
+
+    public byte[] decrypt(byte[] encryptData, int offset, int length) throws GeneralSecurityException {
+        Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+        try {
+            return cipher.doFinal(encryptData, offset, length);
+        } catch (GeneralSecurityException e) {
+            // 解密失败后Cipher的状态不确定，下次重新创建
+            decryptCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 加密input中position到limit的数据写入output，两者的position都会前移
+     *
+     * @param output 剩余空间至少为{@link #getEncryptedSize(int)}
+     * @return 写入output的字节数
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
+        try {
+            return cipher.doFinal(input, output);
+        } catch (GeneralSecurityException e) {
+            encryptCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 解密input中position到limit的数据写入output，两者的position都会前移
+     *
+     * @param output 剩余空间至少为input的剩余字节数
+     * @return 写入output的字节数
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+        try {
+            return cipher.doFinal(input, output);
+        } catch (GeneralSecurityException e) {
+            decryptCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 加密length字节数据后的长度
+     */
+    public static int getEncryptedSize(int length) {
+        return (length / AES_BLOCK_SIZE + 1) * AES_BLOCK_SIZE;
+    }
+
+    /**
+     * 写入的数据加密后写到out，关闭时写出最后一块并关闭out
+     * <p>
+     * 每个流使用独立的Cipher，适合加密大数据，流本身不是线程安全的
+     */
+    public OutputStream newEncryptStream(OutputStream out) throws GeneralSecurityException {
+        return new CipherOutputStream(out, newCipher(Cipher.ENCRYPT_MODE));
+    }
+
+    /**
+     * 从in读出的数据解密后返回，关闭时关闭in
+     * <p>
+     * 每个流使用独立的Cipher，适合解密大数据，流本身不是线程安全的
+     */
+    public InputStream newDecryptStream(InputStream in) throws GeneralSecurityException {
+        return new CipherInputStream(in, newCipher(Cipher.DECRYPT_MODE));
+    }
+
+    private Cipher getCipher(int mode) throws GeneralSecurityException {
+        ThreadLocal<Cipher> cache = mode == Cipher.ENCRYPT_MODE ? encryptCipher : decryptCipher;
+        Cipher cipher = cache.get();
+        if (cipher == null) {
+            cipher = newCipher(mode);
+            cache.set(cipher);
+        }
+        return cipher;
+    }
+
+    private Cipher newCipher(int mode) throws GeneralSecurityException {
+        Cipher cipher;
+        try {
+            cipher = Cipher.getInstance(AES_CBC_PKCS5PADDING);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (NoSuchPaddingException e) {
+            throw new RuntimeException(e);
+        }
+        cipher.init(mode, keySpec, ivSpec);
+        return cipher;
+    }
+}
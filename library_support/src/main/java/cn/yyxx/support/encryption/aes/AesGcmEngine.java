@@ -0,0 +1,244 @@
+package cn.yyxx.support.encryption.aes;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 绑定一个密钥的AES/GCM/NoPadding加解密，同时保证机密性和完整性，线程安全
+ * <p>
+ * 每条消息使用随机的12字节nonce，输出格式为：版本(1字节) + nonce(12字节) + 密文 + 认证标签(16字节)。
+ * 随机nonce下同一密钥加密的消息数应远少于2^32条。
+ * 优先使用系统的AndroidOpenSSL（BoringSSL），在支持的CPU上使用AES硬件指令
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class AesGcmEngine extends AesCommon {
+
+    /**
+     * 当前的格式版本
+     */
+    public static final byte VERSION = 1;
+
+    public static final int NONCE_LENGTH = 12;
+
+    public static final int TAG_LENGTH = 16;
+
+    /**
+     * 加密后比明文多出的字节数
+     */
+    public static final int OVERHEAD = 1 + NONCE_LENGTH + TAG_LENGTH;
+
+    private static final String PREFERRED_PROVIDER = "AndroidOpenSSL";
+
+    private static final String PROVIDER = resolveProvider();
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec keySpec;
+
+    private final ThreadLocal<Cipher> cipher = new ThreadLocal<Cipher>();
+
+    public AesGcmEngine(byte[] aesKey) {
+        if (aesKey == null || !(aesKey.length == 16 || aesKey.length == 32)) {
+            throw new RuntimeException("aes key should be 16 bytes(128bits) or 32 bytes(256bits)");
+        }
+        this.keySpec = new SecretKeySpec(aesKey, "AES");
+    }
+
+    public byte[] encrypt(byte[] buf, int offset, int length) throws GeneralSecurityException {
+        return encrypt(buf, offset, length, null);
+    }
+
+    /**
+     * 加密
+     *
+     * @param aad 只参与认证、不加密的附加数据，解密时必须相同，可为null
+     * @return 版本 + nonce + 密文 + 认证标签
+     */
+    public byte[] encrypt(byte[] buf, int offset, int length, byte[] aad) throws GeneralSecurityException {
+        byte[] frame = new byte[length + OVERHEAD];
+        frame[0] = VERSION;
+        newNonce(frame);
+        Cipher c = init(Cipher.ENCRYPT_MODE, frame, 1, aad);
+        c.doFinal(buf, offset, length, frame, 1 + NONCE_LENGTH);
+        return frame;
+    }
+
+    public byte[] decrypt(byte[] frame, int offset, int length) throws GeneralSecurityException {
+        return decrypt(frame, offset, length, null);
+    }
+
+    /**
+     * 解密并校验
+     *
+     * @param aad 加密时的附加数据，可为null
+     * @throws BadPaddingException 数据被篡改、密钥或aad不一致（API 19以上为AEADBadTagException）
+     */
+    public byte[] decrypt(byte[] frame, int offset, int length, byte[] aad) throws GeneralSecurityException {
+        checkFrame(length, frame[offset]);
+        Cipher c = init(Cipher.DECRYPT_MODE, frame, offset + 1, aad);
+        return c.doFinal(frame, offset + 1 + NONCE_LENGTH, length - 1 - NONCE_LENGTH);
+    }
+
+    /**
+     * 加密input中position到limit的数据，把整个消息写入output，两者的position都会前移
+     *
+     * @param output 剩余空间至少为input剩余字节数 + {@link #OVERHEAD}
+     * @return 写入output的字节数
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output, byte[] aad) throws GeneralSecurityException {
+        if (output.remaining() < input.remaining() + OVERHEAD) {
+            throw new ShortBufferException("output buffer too small");
+        }
+        byte[] header = new byte[1 + NONCE_LENGTH];
+        header[0] = VERSION;
+        newNonce(header);
+        Cipher c = init(Cipher.ENCRYPT_MODE, header, 1, aad);
+        output.put(header);
+        return header.length + c.doFinal(input, output);
+    }
+
+    /**
+     * 解密input中position到limit的整个消息，明文写入output，两者的position都会前移
+     *
+     * @param output 剩余空间至少为input剩余字节数 - {@link #OVERHEAD}
+     * @return 写入output的字节数
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output, byte[] aad) throws GeneralSecurityException {
+        int length = input.remaining();
+        checkFrame(length, length > 0 ? input.get(input.position()) : 0);
+        byte[] header = new byte[1 + NONCE_LENGTH];
+        input.get(header);
+        Cipher c = init(Cipher.DECRYPT_MODE, header, 1, aad);
+        return c.doFinal(input, output);
+    }
+
+    /**
+     * 写入版本和nonce后返回加密流，写入的数据加密后写到out，关闭时写出认证标签并关闭out
+     * <p>
+     * 每个流使用独立的Cipher，流本身不是线程安全的
+     */
+    public OutputStream newEncryptStream(OutputStream out) throws GeneralSecurityException, IOException {
+        byte[] header = new byte[1 + NONCE_LENGTH];
+        header[0] = VERSION;
+        newNonce(header);
+        Cipher c = newCipher();
+        c.init(Cipher.ENCRYPT_MODE, keySpec, newParameterSpec(header, 1));
+        out.write(header);
+        return new CipherOutputStream(out, c);
+    }
+
+    /**
+     * 读取版本和nonce后返回解密流，关闭时关闭in
+     * <p>
+     * 认证标签在读到流末尾时才校验，校验失败时读取抛出异常，之前读出的数据不可信；
+     * 需要先校验再使用数据时请用byte[]接口。每个流使用独立的Cipher，流本身不是线程安全的
+     */
+    public InputStream newDecryptStream(InputStream in) throws GeneralSecurityException, IOException {
+        byte[] header = new byte[1 + NONCE_LENGTH];
+        int count = 0;
+        while (count < header.length) {
+            int read = in.read(header, count, header.length - count);
+            if (read == -1) {
+                throw new EOFException("message too short");
+            }
+            count += read;
+        }
+        if (header[0] != VERSION) {
+            throw new BadPaddingException("unsupported version " + header[0]);
+        }
+        Cipher c = newCipher();
+        c.init(Cipher.DECRYPT_MODE, keySpec, newParameterSpec(header, 1));
+        return new CipherInputStream(in, c);
+    }
+
+    /**
+     * 在frame的版本字节之后写入随机nonce
+     */
+    private static void newNonce(byte[] frame) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        System.arraycopy(nonce, 0, frame, 1, NONCE_LENGTH);
+    }
+
+    private static void checkFrame(int length, byte version) throws BadPaddingException {
+        if (length < OVERHEAD) {
+            throw new BadPaddingException("message too short");
+        }
+        if (version != VERSION) {
+            throw new BadPaddingException("unsupported version " + version);
+        }
+    }
+
+    /**
+     * 用frame中nonceOffset处的nonce初始化本线程的Cipher
+     */
+    private Cipher init(int mode, byte[] frame, int nonceOffset, byte[] aad) throws GeneralSecurityException {
+        Cipher c = cipher.get();
+        if (c == null) {
+            c = newCipher();
+            cipher.set(c);
+        }
+        c.init(mode, keySpec, newParameterSpec(frame, nonceOffset));
+        if (aad != null) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+                throw new InvalidAlgorithmParameterException("aad requires API 19");
+            }
+            updateAad(c, aad);
+        }
+        return c;
+    }
+
+    private static Cipher newCipher() throws GeneralSecurityException {
+        return PROVIDER != null
+                ? Cipher.getInstance(AES_GCM_NOPADDING, PROVIDER)
+                : Cipher.getInstance(AES_GCM_NOPADDING);
+    }
+
+    private static AlgorithmParameterSpec newParameterSpec(byte[] frame, int nonceOffset) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return newGcmParameterSpec(frame, nonceOffset);
+        }
+        // API 19以下的BouncyCastle接受IvParameterSpec，标签长度为默认的128位
+        return new IvParameterSpec(frame, nonceOffset, NONCE_LENGTH);
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static AlgorithmParameterSpec newGcmParameterSpec(byte[] frame, int nonceOffset) {
+        return new GCMParameterSpec(TAG_LENGTH * 8, frame, nonceOffset, NONCE_LENGTH);
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static void updateAad(Cipher c, byte[] aad) {
+        c.updateAAD(aad);
+    }
+
+    private static String resolveProvider() {
+        try {
+            Cipher.getInstance(AES_GCM_NOPADDING, PREFERRED_PROVIDER);
+            return PREFERRED_PROVIDER;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
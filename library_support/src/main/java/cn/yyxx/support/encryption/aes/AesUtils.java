@@ -1,7 +1,9 @@
 package cn.yyxx.support.encryption.aes;
 
 
+import java.io.UnsupportedEncodingException;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cn.yyxx.support.encryption.Base64Utils;
 import cn.yyxx.support.encryption.HexUtils;
@@ -12,6 +14,15 @@ import cn.yyxx.support.encryption.HexUtils;
  */
 public class AesUtils {
 
+    /**
+     * 缓存的密钥个数上限，超过后清空重建
+     */
+    private static final int MAX_CACHED_ENGINES = 16;
+
+    private static final ConcurrentHashMap<String, AesEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<String, AesGcmEngine> GCM_ENGINES = new ConcurrentHashMap<>();
+
     /**
      * 加密
      *
@@ -20,23 +31,18 @@ public class AesUtils {
      * @return
      */
     public static String encrypt(String aesKey, String content) throws Exception {
-        byte[] keyBytes = aesKey.getBytes("UTF-8");
         byte[] contentBytes = content.getBytes("UTF-8");
 
         //AES encrypt
-        AesEncrypt aesEncrypt = new AesEncrypt(keyBytes);
-        byte[] encryptedContent = aesEncrypt.encrypt(contentBytes, 0, contentBytes.length);
+        byte[] encryptedContent = getEngine(aesKey, null).encrypt(contentBytes, 0, contentBytes.length);
         return Base64Utils.encode(encryptedContent);
     }
 
     public static String encrypt2hex(String aesKey, String iv, String content) {
         try {
-            byte[] keyBytes = aesKey.getBytes("UTF-8");
-            byte[] ivBytes = iv.getBytes("UTF-8");
             byte[] contentBytes = content.getBytes("UTF-8");
 
-            AesEncrypt aesEncrypt = new AesEncrypt(keyBytes, ivBytes);
-            byte[] encryptedContent = aesEncrypt.encrypt(contentBytes, 0, contentBytes.length);
+            byte[] encryptedContent = getEngine(aesKey, iv).encrypt(contentBytes, 0, contentBytes.length);
             return HexUtils.bytes2HexString(encryptedContent).toLowerCase(Locale.getDefault());
         } catch (Exception e) {
             e.printStackTrace();
@@ -52,11 +58,9 @@ public class AesUtils {
      * @return
      */
     public static String decrypt(String aesKey, String content) throws Exception {
-        byte[] keyBytes = aesKey.getBytes("UTF-8");
         byte[] contentBytes = Base64Utils.decode(content);
         //AES decrypt
-        AesDecrypt aesDecrypt = new AesDecrypt(keyBytes);
-        byte[] decryptedContent = aesDecrypt.decrypt(contentBytes, 0, contentBytes.length);
+        byte[] decryptedContent = getEngine(aesKey, null).decrypt(contentBytes, 0, contentBytes.length);
         return new String(decryptedContent);
     }
 
@@ -69,16 +73,69 @@ public class AesUtils {
      */
     public static String decrypt2hex(String aesKey, String iv, String content) {
         try {
-            byte[] keyBytes = aesKey.getBytes("UTF-8");
-            byte[] ivBytes = iv.getBytes("UTF-8");
             byte[] contentBytes = HexUtils.hexString2Bytes(content);
             //AES decrypt
-            AesDecrypt aesDecrypt = new AesDecrypt(keyBytes, ivBytes);
-            byte[] decryptedContent = aesDecrypt.decrypt(contentBytes, 0, contentBytes.length);
+            byte[] decryptedContent = getEngine(aesKey, iv).decrypt(contentBytes, 0, contentBytes.length);
             return new String(decryptedContent);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return "";
     }
+
+    /**
+     * AES-GCM加密，每次使用随机nonce，结果同时带完整性校验，不需要另外签名
+     *
+     * @param aesKey  16或32字节的密钥
+     * @param content 明文
+     * @return Base64编码的 版本 + nonce + 密文 + 认证标签
+     */
+    public static String encryptGcm(String aesKey, String content) throws Exception {
+        byte[] contentBytes = content.getBytes("UTF-8");
+        byte[] encryptedContent = getGcmEngine(aesKey).encrypt(contentBytes, 0, contentBytes.length);
+        return Base64Utils.encode(encryptedContent);
+    }
+
+    /**
+     * AES-GCM解密，数据被篡改时抛出异常
+     *
+     * @param aesKey  16或32字节的密钥
+     * @param content {@link #encryptGcm(String, String)}的结果
+     */
+    public static String decryptGcm(String aesKey, String content) throws Exception {
+        byte[] contentBytes = Base64Utils.decode(content);
+        byte[] decryptedContent = getGcmEngine(aesKey).decrypt(contentBytes, 0, contentBytes.length);
+        return new String(decryptedContent, "UTF-8");
+    }
+
+    private static AesGcmEngine getGcmEngine(String aesKey) throws UnsupportedEncodingException {
+        AesGcmEngine engine = GCM_ENGINES.get(aesKey);
+        if (engine == null) {
+            engine = new AesGcmEngine(aesKey.getBytes("UTF-8"));
+            if (GCM_ENGINES.size() >= MAX_CACHED_ENGINES) {
+                GCM_ENGINES.clear();
+            }
+            GCM_ENGINES.put(aesKey, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * 获取密钥对应的AesEngine，同一密钥复用同一个实例
+     *
+     * @param iv 为null时由密钥生成
+     */
+    private static AesEngine getEngine(String aesKey, String iv) throws UnsupportedEncodingException {
+        String cacheKey = iv == null ? aesKey.length() + ":" + aesKey : aesKey.length() + ":" + aesKey + ":" + iv;
+        AesEngine engine = ENGINES.get(cacheKey);
+        if (engine == null) {
+            byte[] keyBytes = aesKey.getBytes("UTF-8");
+            engine = iv == null ? new AesEngine(keyBytes) : new AesEngine(keyBytes, iv.getBytes("UTF-8"));
+            if (ENGINES.size() >= MAX_CACHED_ENGINES) {
+                ENGINES.clear();
+            }
+            ENGINES.put(cacheKey, engine);
+        }
+        return engine;
+    }
 }
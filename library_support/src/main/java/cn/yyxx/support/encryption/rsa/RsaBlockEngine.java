@@ -0,0 +1,390 @@
+package cn.yyxx.support.encryption.rsa;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.interfaces.RSAKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.crypto.Cipher;
+
+/**
+ * 绑定一个RSA密钥的分段加解密，线程安全
+ * <p>
+ * 输出格式与{@link RsaUtils#encryptByPublicKeyForSpilt(byte[], byte[])}等方法相同：
+ * 明文按 密钥字节数-11 分块，各块密文之间以{@link RsaUtils#DEFAULT_SPLIT}分隔。
+ * 密钥只解析一次，每个线程复用一个已初始化的Cipher，结果直接写入预先算好大小的数组或输出流。
+ * 各块互不依赖，数据较大时可以传入线程池并行处理
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class RsaBlockEngine {
+
+    /**
+     * PKCS1填充占用的字节数
+     */
+    private static final int PKCS1_PADDING_SIZE = 11;
+
+    private static final byte[] SPLIT = RsaUtils.DEFAULT_SPLIT;
+
+    private final Key key;
+    /**
+     * 一块密文的长度，即模数的字节数
+     */
+    private final int keySize;
+    /**
+     * 一块明文的最大长度
+     */
+    private final int blockSize;
+
+    private final ThreadLocal<Cipher> encryptCipher = new ThreadLocal<Cipher>();
+    private final ThreadLocal<Cipher> decryptCipher = new ThreadLocal<Cipher>();
+
+    /**
+     * @param key RSA公钥或私钥
+     */
+    public RsaBlockEngine(Key key) {
+        this.key = key;
+        int bits = key instanceof RSAKey ? ((RSAKey) key).getModulus().bitLength() : RsaUtils.DEFAULT_KEY_SIZE;
+        this.keySize = (bits + 7) / 8;
+        this.blockSize = keySize - PKCS1_PADDING_SIZE;
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * 一块明文的最大长度
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * 加密length字节明文后的长度
+     */
+    public int getEncryptedSize(int length) {
+        int blocks = getBlockCount(length);
+        return blocks * keySize + (blocks - 1) * SPLIT.length;
+    }
+
+    /**
+     * 不分段，整个数据作为一块加密，长度不能超过{@link #getBlockSize()}
+     */
+    public byte[] encryptBlock(byte[] data) throws GeneralSecurityException {
+        byte[] output = new byte[keySize];
+        int count = doFinal(getCipher(Cipher.ENCRYPT_MODE), encryptCipher, data, 0, data.length, output, 0);
+        return count == keySize ? output : Arrays.copyOf(output, count);
+    }
+
+    /**
+     * 不分段，整个数据作为一块解密
+     */
+    public byte[] decryptBlock(byte[] encrypted) throws GeneralSecurityException {
+        byte[] output = new byte[keySize];
+        int count = doFinal(getCipher(Cipher.DECRYPT_MODE), decryptCipher, encrypted, 0, encrypted.length, output, 0);
+        return Arrays.copyOf(output, count);
+    }
+
+    public byte[] encrypt(byte[] data) throws GeneralSecurityException {
+        return encrypt(data, 0, data.length);
+    }
+
+    /**
+     * 分段加密，不超过一块时与直接加密相同，没有分隔符
+     */
+    public byte[] encrypt(byte[] data, int offset, int length) throws GeneralSecurityException {
+        byte[] output = new byte[getEncryptedSize(length)];
+        encryptBlocks(data, offset, length, output, 0, getBlockCount(length));
+        return output;
+    }
+
+    /**
+     * 分段加密，用线程池并行加密各块，数据不超过两块时在当前线程完成
+     *
+     * @param executor 执行加密任务的线程池
+     */
+    public byte[] encrypt(final byte[] data, final int offset, final int length, ExecutorService executor)
+            throws GeneralSecurityException {
+        final int blocks = getBlockCount(length);
+        final byte[] output = new byte[getEncryptedSize(length)];
+        int tasks = Math.min(blocks, Runtime.getRuntime().availableProcessors());
+        if (tasks <= 1 || blocks <= 2) {
+            encryptBlocks(data, offset, length, output, 0, blocks);
+            return output;
+        }
+        List<Callable<Void>> callables = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int from = blocks * t / tasks;
+            final int to = blocks * (t + 1) / tasks;
+            callables.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    encryptBlocks(data, offset, length, output, from, to);
+                    return null;
+                }
+            });
+        }
+        invokeAll(executor, callables);
+        return output;
+    }
+
+    /**
+     * 分段加密后写到输出流，输出流不会被关闭
+     */
+    public void encrypt(byte[] data, int offset, int length, OutputStream out)
+            throws GeneralSecurityException, IOException {
+        Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
+        byte[] block = new byte[keySize];
+        int blocks = getBlockCount(length);
+        for (int b = 0; b < blocks; b++) {
+            if (b > 0) {
+                out.write(SPLIT);
+            }
+            int start = offset + b * blockSize;
+            int count = doFinal(cipher, encryptCipher, data, start, Math.min(blockSize, offset + length - start), block, 0);
+            out.write(block, 0, count);
+        }
+    }
+
+    /**
+     * 读取输入流的全部数据，分段加密后写到输出流，两个流都不会被关闭
+     *
+     * @return 明文的字节数
+     */
+    public long encrypt(InputStream in, OutputStream out) throws GeneralSecurityException, IOException {
+        Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
+        byte[] plain = new byte[blockSize];
+        byte[] block = new byte[keySize];
+        long total = 0;
+        boolean first = true;
+        while (true) {
+            int count = readBlock(in, plain);
+            if (count == 0 && !first) {
+                break;
+            }
+            if (!first) {
+                out.write(SPLIT);
+            }
+            first = false;
+            out.write(block, 0, doFinal(cipher, encryptCipher, plain, 0, count, block, 0));
+            total += count;
+            if (count < blockSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    public byte[] decrypt(byte[] encrypted) throws GeneralSecurityException {
+        return decrypt(encrypted, 0, encrypted.length);
+    }
+
+    /**
+     * 按分隔符拆分后逐块解密
+     */
+    public byte[] decrypt(byte[] encrypted, int offset, int length) throws GeneralSecurityException {
+        int[] parts = findParts(encrypted, offset, length);
+        int count = parts.length / 2;
+        byte[] output = new byte[count * keySize];
+        int position = 0;
+        Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+        for (int p = 0; p < count; p++) {
+            position += doFinal(cipher, decryptCipher, encrypted, parts[2 * p], parts[2 * p + 1], output, position);
+        }
+        return position == output.length ? output : Arrays.copyOf(output, position);
+    }
+
+    /**
+     * 按分隔符拆分后用线程池并行解密各块
+     *
+     * @param executor 执行解密任务的线程池
+     */
+    public byte[] decrypt(final byte[] encrypted, int offset, int length, ExecutorService executor)
+            throws GeneralSecurityException {
+        final int[] parts = findParts(encrypted, offset, length);
+        int count = parts.length / 2;
+        int tasks = Math.min(count, Runtime.getRuntime().availableProcessors());
+        if (tasks <= 1 || count <= 2) {
+            return decrypt(encrypted, offset, length);
+        }
+        // 每块先解密到各自的位置，完成后再紧凑排列
+        final byte[] blocks = new byte[count * keySize];
+        final int[] sizes = new int[count];
+        List<Callable<Void>> callables = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int from = count * t / tasks;
+            final int to = count * (t + 1) / tasks;
+            callables.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+                    for (int p = from; p < to; p++) {
+                        sizes[p] = doFinal(cipher, decryptCipher, encrypted, parts[2 * p], parts[2 * p + 1], blocks, p * keySize);
+                    }
+                    return null;
+                }
+            });
+        }
+        invokeAll(executor, callables);
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        byte[] output = new byte[total];
+        int position = 0;
+        for (int p = 0; p < count; p++) {
+            System.arraycopy(blocks, p * keySize, output, position, sizes[p]);
+            position += sizes[p];
+        }
+        return output;
+    }
+
+    /**
+     * 按分隔符拆分后逐块解密，写到输出流，输出流不会被关闭
+     */
+    public void decrypt(byte[] encrypted, int offset, int length, OutputStream out)
+            throws GeneralSecurityException, IOException {
+        int[] parts = findParts(encrypted, offset, length);
+        byte[] block = new byte[keySize];
+        Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+        for (int p = 0; p < parts.length / 2; p++) {
+            out.write(block, 0, doFinal(cipher, decryptCipher, encrypted, parts[2 * p], parts[2 * p + 1], block, 0));
+        }
+    }
+
+    private int getBlockCount(int length) {
+        // 空数据也加密为一块，与RsaUtils一致
+        return Math.max(1, (length + blockSize - 1) / blockSize);
+    }
+
+    /**
+     * 加密第from到to块，写入output中各块对应的位置
+     */
+    private void encryptBlocks(byte[] data, int offset, int length, byte[] output, int from, int to)
+            throws GeneralSecurityException {
+        Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
+        int stride = keySize + SPLIT.length;
+        for (int b = from; b < to; b++) {
+            int start = offset + b * blockSize;
+            int position = b * stride;
+            if (b > 0) {
+                System.arraycopy(SPLIT, 0, output, position - SPLIT.length, SPLIT.length);
+            }
+            int count = doFinal(cipher, encryptCipher, data, start, Math.min(blockSize, offset + length - start), output, position);
+            if (count != keySize) {
+                throw new GeneralSecurityException("unexpected rsa block size " + count);
+            }
+        }
+    }
+
+    /**
+     * 拆分分段密文，规则与{@link RsaUtils#decryptByPublicKeyForSpilt(byte[], byte[])}相同
+     *
+     * @return 各块的起始位置和长度，依次排列
+     */
+    static int[] findParts(byte[] data, int offset, int length) {
+        int[] parts = new int[8];
+        int count = 0;
+        int end = offset + length;
+        int start = offset;
+        int i = offset;
+        while (i < end) {
+            int partEnd = -1;
+            if (i == end - 1) {
+                // 到data的最后了
+                partEnd = end;
+            } else if (i + SPLIT.length < end && matchesSplit(data, i)) {
+                partEnd = i;
+            }
+            if (partEnd < 0) {
+                i++;
+                continue;
+            }
+            if (count + 2 > parts.length) {
+                parts = Arrays.copyOf(parts, parts.length * 2);
+            }
+            parts[count++] = start;
+            parts[count++] = partEnd - start;
+            start = i + SPLIT.length;
+            i = start;
+        }
+        return count == parts.length ? parts : Arrays.copyOf(parts, count);
+    }
+
+    private static boolean matchesSplit(byte[] data, int index) {
+        for (int j = 0; j < SPLIT.length; j++) {
+            if (data[index + j] != SPLIT[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readBlock(InputStream in, byte[] buffer) throws IOException {
+        int count = 0;
+        while (count < buffer.length) {
+            int read = in.read(buffer, count, buffer.length - count);
+            if (read == -1) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> callables)
+            throws GeneralSecurityException {
+        List<Future<Void>> futures;
+        try {
+            futures = executor.invokeAll(callables);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneralSecurityException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GeneralSecurityException(cause);
+        }
+    }
+
+    private int doFinal(Cipher cipher, ThreadLocal<Cipher> cache, byte[] input, int offset, int length,
+                        byte[] output, int outputOffset) throws GeneralSecurityException {
+        try {
+            return cipher.doFinal(input, offset, length, output, outputOffset);
+        } catch (GeneralSecurityException e) {
+            // 失败后Cipher的状态不确定，下次重新创建
+            cache.remove();
+            throw e;
+        }
+    }
+
+    private Cipher getCipher(int mode) throws GeneralSecurityException {
+        ThreadLocal<Cipher> cache = mode == Cipher.ENCRYPT_MODE ? encryptCipher : decryptCipher;
+        Cipher cipher = cache.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(RsaUtils.ECB_PKCS1_PADDING);
+            cipher.init(mode, key);
+            cache.set(cipher);
+        }
+        return cipher;
+    }
+}
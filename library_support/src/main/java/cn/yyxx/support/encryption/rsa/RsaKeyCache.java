@@ -0,0 +1,174 @@
+package cn.yyxx.support.encryption.rsa;
+
+import java.security.KeyFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.yyxx.support.encryption.Base64Utils;
+import cn.yyxx.support.encryption.DigestUtils;
+
+/**
+ * 已解析RSA密钥的LRU缓存，线程安全
+ * <p>
+ * 缓存的是{@link RsaBlockEngine}，其中包含解析好的PublicKey/PrivateKey和每个线程已初始化的Cipher，
+ * 命中时省去Base64解码、KeyFactory解析和Cipher创建。
+ * Base64字符串形式的密钥直接以字符串为指纹，字节数组形式的密钥以SHA-256为指纹
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class RsaKeyCache {
+
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    private final LinkedHashMap<String, RsaBlockEngine> engines;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RsaKeyCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize 最多缓存的密钥个数
+     */
+    public RsaKeyCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.engines = new LinkedHashMap<String, RsaBlockEngine>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RsaBlockEngine> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param publicKey Base64编码的X.509公钥
+     */
+    public RsaBlockEngine getPublicKeyEngine(String publicKey) throws Exception {
+        String fingerprint = "pub:" + publicKey;
+        RsaBlockEngine engine = get(fingerprint);
+        if (engine == null) {
+            engine = newPublicKeyEngine(Base64Utils.decode(publicKey));
+            put(fingerprint, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * @param privateKey Base64编码的PKCS#8私钥
+     */
+    public RsaBlockEngine getPrivateKeyEngine(String privateKey) throws Exception {
+        String fingerprint = "pri:" + privateKey;
+        RsaBlockEngine engine = get(fingerprint);
+        if (engine == null) {
+            engine = newPrivateKeyEngine(Base64Utils.decode(privateKey));
+            put(fingerprint, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * @param publicKey X.509编码的公钥
+     */
+    public RsaBlockEngine getPublicKeyEngine(byte[] publicKey) throws Exception {
+        String fingerprint = "pub#" + fingerprint(publicKey);
+        RsaBlockEngine engine = get(fingerprint);
+        if (engine == null) {
+            engine = newPublicKeyEngine(publicKey);
+            put(fingerprint, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * @param privateKey PKCS#8编码的私钥
+     */
+    public RsaBlockEngine getPrivateKeyEngine(byte[] privateKey) throws Exception {
+        String fingerprint = "pri#" + fingerprint(privateKey);
+        RsaBlockEngine engine = get(fingerprint);
+        if (engine == null) {
+            engine = newPrivateKeyEngine(privateKey);
+            put(fingerprint, engine);
+        }
+        return engine;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 因超过容量被移除的密钥数
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * 命中率，没有查询过时为0
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public synchronized int size() {
+        return engines.size();
+    }
+
+    /**
+     * 清空缓存和统计
+     */
+    public synchronized void clear() {
+        engines.clear();
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    private synchronized RsaBlockEngine get(String fingerprint) {
+        RsaBlockEngine engine = engines.get(fingerprint);
+        if (engine != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return engine;
+    }
+
+    private synchronized void put(String fingerprint, RsaBlockEngine engine) {
+        // 解析在锁外进行，并发未命中时以后放入的为准
+        engines.put(fingerprint, engine);
+    }
+
+    private static String fingerprint(byte[] key) {
+        return DigestUtils.sha256Hex(key);
+    }
+
+    private static RsaBlockEngine newPublicKeyEngine(byte[] publicKey) throws Exception {
+        KeyFactory kf = KeyFactory.getInstance(RsaUtils.RSA);
+        return new RsaBlockEngine(kf.generatePublic(new X509EncodedKeySpec(publicKey)));
+    }
+
+    private static RsaBlockEngine newPrivateKeyEngine(byte[] privateKey) throws Exception {
+        KeyFactory kf = KeyFactory.getInstance(RsaUtils.RSA);
+        return new RsaBlockEngine(kf.generatePrivate(new PKCS8EncodedKeySpec(privateKey)));
+    }
+}
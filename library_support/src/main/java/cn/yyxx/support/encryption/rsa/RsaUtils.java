@@ -8,10 +8,6 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.crypto.Cipher;
 
 import cn.yyxx.support.encryption.Base64Utils;
 
@@ -51,6 +47,11 @@ public class RsaUtils {
 //    public static final String RSA_PUBLIC_1024_X509_PEM = "MIGfMA0GCSqGSIb3DQEBAQUAA4GNADCBiQKBgQCDlV1JzHzuZD8AwezcbyK+6TsVL00TVJsYB5Jy4lI5TrUf+vn0fsi40MxAwKCdUagjjkQKh7Fv2TgBUlJoJuZiUdXwcCJp+XoBDEHMJreRs2L/1RiutCiighb+FYeCMXIwuIOcdkoRwD7eWOL0C1D7RSI+lrk52k/OaUyK+1/lHQIDAQAB";
     public static final String RSA_PUBLIC_1024_X509_PEM = "MFwwDQYJKoZIhvcNAQEBBQADSwAwSAJBALHEovdQ9uVH9WTLh5PprTUZAJPdAPEHfvlsMLEiAenwecn5jNkKcI7MzDj/T963iLnjDooRcPwfyokgA75Ff2kCAwEAAQ==";
 
+    /**
+     * 已解析密钥的缓存，字符串和字节数组接口共用
+     */
+    private static final RsaKeyCache KEY_CACHE = new RsaKeyCache();
+
     public static final String RSA_PRIVATE_1024_X509_PEM = "MIIBVQIBADANBgkqhkiG9w0BAQEFAASCAT8wggE7AgEAAkEAscSi91D25Uf1ZMuHk+mtNRkAk90A8Qd++WwwsSIB6fB5yfmM2QpwjszMOP9P3reIueMOihFw/B/KiSADvkV/aQIDAQABAkEAql+2fOfpKUg1JXx3nUiZi8lBp3VqAJfZlv2dETdxtB4AAVr/h+3dAKaA0+GG+a9BFX0ITr7eiXbq0B26+NAGgQIhANWW7339dvB7ssn0G2xmpe6DN4xCMTeETYduX/m5QMAZAiEA1RDYD8iADR3qn2LyeeQGhX5fpPELyNzbR9L0Qs73Y9ECIGog2VdM/jB4Blp6xLWUO5bL9Gno6fOf9bX5jg7TkezhAiBsUBfGTkLqaB7xz7c8R7MZAdlVXESFY+EFbjRGEjipQQIhAIby4FTtMXHnNr0kiPBnQ3HQigH4RaTjWo7BNqGBiN1S";
 
     /**
@@ -60,43 +61,7 @@ public class RsaUtils {
      * @param publicKey 公钥
      */
     public static byte[] encryptByPublicKeyForSpilt(byte[] data, byte[] publicKey) throws Exception {
-        int dataLen = data.length;
-        if (dataLen <= DEFAULT_BUFFERSIZE) {
-            return encryptByPublicKey(data, publicKey);
-        }
-        List<Byte> allBytes = new ArrayList<Byte>(2048);
-        int bufIndex = 0;
-        int subDataLoop = 0;
-        byte[] buf = new byte[DEFAULT_BUFFERSIZE];
-        for (int i = 0; i < dataLen; i++) {
-            buf[bufIndex] = data[i];
-            if (++bufIndex == DEFAULT_BUFFERSIZE || i == dataLen - 1) {
-                subDataLoop++;
-                if (subDataLoop != 1) {
-                    for (byte b : DEFAULT_SPLIT) {
-                        allBytes.add(b);
-                    }
-                }
-                byte[] encryptBytes = encryptByPublicKey(buf, publicKey);
-                for (byte b : encryptBytes) {
-                    allBytes.add(b);
-                }
-                bufIndex = 0;
-                if (i == dataLen - 1) {
-                    buf = null;
-                } else {
-                    buf = new byte[Math.min(DEFAULT_BUFFERSIZE, dataLen - i - 1)];
-                }
-            }
-        }
-        byte[] bytes = new byte[allBytes.size()];
-        {
-            int i = 0;
-            for (Byte b : allBytes) {
-                bytes[i++] = b.byteValue();
-            }
-        }
-        return bytes;
+        return KEY_CACHE.getPublicKeyEngine(publicKey).encrypt(data);
     }
 
     /**
@@ -106,43 +71,7 @@ public class RsaUtils {
      * @param privateKey 秘钥
      */
     public static byte[] encryptByPrivateKeyForSpilt(byte[] data, byte[] privateKey) throws Exception {
-        int dataLen = data.length;
-        if (dataLen <= DEFAULT_BUFFERSIZE) {
-            return encryptByPrivateKey(data, privateKey);
-        }
-        List<Byte> allBytes = new ArrayList<Byte>(2048);
-        int bufIndex = 0;
-        int subDataLoop = 0;
-        byte[] buf = new byte[DEFAULT_BUFFERSIZE];
-        for (int i = 0; i < dataLen; i++) {
-            buf[bufIndex] = data[i];
-            if (++bufIndex == DEFAULT_BUFFERSIZE || i == dataLen - 1) {
-                subDataLoop++;
-                if (subDataLoop != 1) {
-                    for (byte b : DEFAULT_SPLIT) {
-                        allBytes.add(b);
-                    }
-                }
-                byte[] encryptBytes = encryptByPrivateKey(buf, privateKey);
-                for (byte b : encryptBytes) {
-                    allBytes.add(b);
-                }
-                bufIndex = 0;
-                if (i == dataLen - 1) {
-                    buf = null;
-                } else {
-                    buf = new byte[Math.min(DEFAULT_BUFFERSIZE, dataLen - i - 1)];
-                }
-            }
-        }
-        byte[] bytes = new byte[allBytes.size()];
-        {
-            int i = 0;
-            for (Byte b : allBytes) {
-                bytes[i++] = b.byteValue();
-            }
-        }
-        return bytes;
+        return KEY_CACHE.getPrivateKeyEngine(privateKey).encrypt(data);
     }
 
     /**
@@ -153,65 +82,7 @@ public class RsaUtils {
      */
     public static byte[] decryptByPublicKeyForSpilt(byte[] encrypted, byte[] publicKey)
             throws Exception {
-        int splitLen = DEFAULT_SPLIT.length;
-        if (splitLen <= 0) {
-            return decryptByPublicKey(encrypted, publicKey);
-        }
-        int dataLen = encrypted.length;
-        List<Byte> allBytes = new ArrayList<Byte>(1024);
-        int latestStartIndex = 0;
-        for (int i = 0; i < dataLen; i++) {
-            byte bt = encrypted[i];
-            boolean isMatchSplit = false;
-            if (i == dataLen - 1) {
-                // 到data的最后了
-                byte[] part = new byte[dataLen - latestStartIndex];
-                System.arraycopy(encrypted, latestStartIndex, part, 0, part.length);
-                byte[] decryptPart = decryptByPublicKey(part, publicKey);
-                for (byte b : decryptPart) {
-                    allBytes.add(b);
-                }
-                latestStartIndex = i + splitLen;
-                i = latestStartIndex - 1;
-            } else if (bt == DEFAULT_SPLIT[0]) {
-                // 这个是以split[0]开头
-                if (splitLen > 1) {
-                    if (i + splitLen < dataLen) {
-                        // 没有超出data的范围
-                        for (int j = 1; j < splitLen; j++) {
-                            if (DEFAULT_SPLIT[j] != encrypted[i + j]) {
-                                break;
-                            }
-                            if (j == splitLen - 1) {
-                                // 验证到split的最后一位，都没有break，则表明已经确认是split段
-                                isMatchSplit = true;
-                            }
-                        }
-                    }
-                } else {
-                    // split只有一位，则已经匹配了
-                    isMatchSplit = true;
-                }
-            }
-            if (isMatchSplit) {
-                byte[] part = new byte[i - latestStartIndex];
-                System.arraycopy(encrypted, latestStartIndex, part, 0, part.length);
-                byte[] decryptPart = decryptByPublicKey(part, publicKey);
-                for (byte b : decryptPart) {
-                    allBytes.add(b);
-                }
-                latestStartIndex = i + splitLen;
-                i = latestStartIndex - 1;
-            }
-        }
-        byte[] bytes = new byte[allBytes.size()];
-        {
-            int i = 0;
-            for (Byte b : allBytes) {
-                bytes[i++] = b.byteValue();
-            }
-        }
-        return bytes;
+        return KEY_CACHE.getPublicKeyEngine(publicKey).decrypt(encrypted);
     }
 
     /**
@@ -219,65 +90,14 @@ public class RsaUtils {
      */
     public static byte[] decryptByPrivateKeyForSpilt(byte[] encrypted, byte[] privateKey)
             throws Exception {
-        int splitLen = DEFAULT_SPLIT.length;
-        if (splitLen <= 0) {
-            return decryptByPrivateKey(encrypted, privateKey);
-        }
-        int dataLen = encrypted.length;
-        List<Byte> allBytes = new ArrayList<Byte>(1024);
-        int latestStartIndex = 0;
-        for (int i = 0; i < dataLen; i++) {
-            byte bt = encrypted[i];
-            boolean isMatchSplit = false;
-            if (i == dataLen - 1) {
-                // 到data的最后了
-                byte[] part = new byte[dataLen - latestStartIndex];
-                System.arraycopy(encrypted, latestStartIndex, part, 0, part.length);
-                byte[] decryptPart = decryptByPrivateKey(part, privateKey);
-                for (byte b : decryptPart) {
-                    allBytes.add(b);
-                }
-                latestStartIndex = i + splitLen;
-                i = latestStartIndex - 1;
-            } else if (bt == DEFAULT_SPLIT[0]) {
-                // 这个是以split[0]开头
-                if (splitLen > 1) {
-                    if (i + splitLen < dataLen) {
-                        // 没有超出data的范围
-                        for (int j = 1; j < splitLen; j++) {
-                            if (DEFAULT_SPLIT[j] != encrypted[i + j]) {
-                                break;
-                            }
-                            if (j == splitLen - 1) {
-                                // 验证到split的最后一位，都没有break，则表明已经确认是split段
-                                isMatchSplit = true;
-                            }
-                        }
-                    }
-                } else {
-                    // split只有一位，则已经匹配了
-                    isMatchSplit = true;
-                }
-            }
-            if (isMatchSplit) {
-                byte[] part = new byte[i - latestStartIndex];
-                System.arraycopy(encrypted, latestStartIndex, part, 0, part.length);
-                byte[] decryptPart = decryptByPrivateKey(part, privateKey);
-                for (byte b : decryptPart) {
-                    allBytes.add(b);
-                }
-                latestStartIndex = i + splitLen;
-                i = latestStartIndex - 1;
-            }
-        }
-        byte[] bytes = new byte[allBytes.size()];
-        {
-            int i = 0;
-            for (Byte b : allBytes) {
-                bytes[i++] = b.byteValue();
-            }
-        }
-        return bytes;
+        return KEY_CACHE.getPrivateKeyEngine(privateKey).decrypt(encrypted);
+    }
+
+    /**
+     * 已解析密钥的缓存，可读取命中率等统计
+     */
+    public static RsaKeyCache getKeyCache() {
+        return KEY_CACHE;
     }
 
     /**
@@ -286,14 +106,7 @@ public class RsaUtils {
      * @param data 原文
      */
     public static byte[] encryptByPublicKey(byte[] data, byte[] publicKey) throws Exception {
-        // 得到公钥
-        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicKey);
-        KeyFactory kf = KeyFactory.getInstance(RSA);
-        PublicKey keyPublic = kf.generatePublic(keySpec);
-        // 加密数据
-        Cipher cp = Cipher.getInstance(ECB_PKCS1_PADDING);
-        cp.init(Cipher.ENCRYPT_MODE, keyPublic);
-        return cp.doFinal(data);
+        return KEY_CACHE.getPublicKeyEngine(publicKey).encryptBlock(data);
     }
 
     /**
@@ -305,14 +118,7 @@ public class RsaUtils {
      */
     public static byte[] encryptByPrivateKey(byte[] data, byte[] privateKey)
             throws Exception {
-        // 得到私钥
-        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKey);
-        KeyFactory kf = KeyFactory.getInstance(RSA);
-        PrivateKey keyPrivate = kf.generatePrivate(keySpec);
-        // 数据加密
-        Cipher cipher = Cipher.getInstance(ECB_PKCS1_PADDING);
-        cipher.init(Cipher.ENCRYPT_MODE, keyPrivate);
-        return cipher.doFinal(data);
+        return KEY_CACHE.getPrivateKeyEngine(privateKey).encryptBlock(data);
     }
 
 
@@ -324,14 +130,7 @@ public class RsaUtils {
      * @return byte[] 解密数据
      */
     public static byte[] decryptByPublicKey(byte[] data, byte[] publicKey) throws Exception {
-        // 得到公钥
-        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicKey);
-        KeyFactory kf = KeyFactory.getInstance(RSA);
-        PublicKey keyPublic = kf.generatePublic(keySpec);
-        // 数据解密
-        Cipher cipher = Cipher.getInstance(ECB_PKCS1_PADDING);
-        cipher.init(Cipher.DECRYPT_MODE, keyPublic);
-        return cipher.doFinal(data);
+        return KEY_CACHE.getPublicKeyEngine(publicKey).decryptBlock(data);
     }
 
     /**
@@ -344,16 +143,7 @@ public class RsaUtils {
      */
     public static byte[] decryptByPrivateKey(byte[] encrypted, byte[] privateKey)
             throws Exception {
-        // 得到私钥
-        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKey);
-        KeyFactory kf = KeyFactory.getInstance(RSA);
-        PrivateKey keyPrivate = kf.generatePrivate(keySpec);
-
-        // 解密数据
-        Cipher cp = Cipher.getInstance(ECB_PKCS1_PADDING);
-        cp.init(Cipher.DECRYPT_MODE, keyPrivate);
-        byte[] arr = cp.doFinal(encrypted);
-        return arr;
+        return KEY_CACHE.getPrivateKeyEngine(privateKey).decryptBlock(encrypted);
     }
 
     /**
@@ -466,10 +256,9 @@ public class RsaUtils {
 
     public static String encryptByPublicKey(String raw, String key) {
         String enc = "";
-        byte[] keyBytesPublic = Base64Utils.decode(key);
         try {
             byte[] data = raw.getBytes();
-            byte[] bytes = encryptByPublicKey(data, keyBytesPublic);
+            byte[] bytes = KEY_CACHE.getPublicKeyEngine(key).encryptBlock(data);
             enc = Base64Utils.encode(bytes);
         } catch (Exception e) {
             e.printStackTrace();
@@ -484,9 +273,8 @@ public class RsaUtils {
 
     public static String decryptByPublicKey(String enc, String key) {
         String raw = "";
-        byte[] keyBytesPublic = Base64Utils.decode(key);
         try {
-            byte[] bytes = decryptByPublicKey(Base64Utils.decode(enc), keyBytesPublic);
+            byte[] bytes = KEY_CACHE.getPublicKeyEngine(key).decryptBlock(Base64Utils.decode(enc));
             raw = new String(bytes, "UTF-8");
         } catch (Exception e) {
             e.printStackTrace();
@@ -496,10 +284,9 @@ public class RsaUtils {
 
     public static String encryptByPrivateKey(String raw, String priKey) {
         String enc = "";
-        byte[] keyBytesPrivate = Base64Utils.decode(priKey);
         try {
             byte[] rawByte = raw.getBytes();
-            byte[] bytes = encryptByPrivateKey(rawByte, keyBytesPrivate);
+            byte[] bytes = KEY_CACHE.getPrivateKeyEngine(priKey).encryptBlock(rawByte);
             enc = Base64Utils.encode(bytes);
         } catch (Exception e) {
             e.printStackTrace();
@@ -513,9 +300,8 @@ public class RsaUtils {
 
     public static String decryptByPrivateKey(String enc, String priKey) {
         String raw = "";
-        byte[] keyBytesPrivate = Base64Utils.decode(priKey);
         try {
-            byte[] bytes = decryptByPrivateKey(Base64Utils.decode(enc), keyBytesPrivate);
+            byte[] bytes = KEY_CACHE.getPrivateKeyEngine(priKey).decryptBlock(Base64Utils.decode(enc));
             raw = new String(bytes, "UTF-8");
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,361 @@
+package cn.yyxx.support.hawkeye;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志输出，写入内存映射的滚动日志文件
+ * <p>
+ * 调用线程只把日志记录放进无锁环形缓冲区，加时间、级别等前缀和写文件都在后台线程批量完成；缓冲区满时直接丢弃记录，不阻塞调用线程。
+ * 当前文件为 name.log，写满后依次滚动为 name.1.log、name.2.log ...
+ * 进程异常退出时当前文件末尾可能留有未写入的空字节
+ * <p>
+ * 使用：LogUtils.setSink(new AsyncFileLogSink(dir, "yyxx"))
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public class AsyncFileLogSink implements LogSink {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_FILE_SIZE = 1024 * 1024;
+    private static final int DEFAULT_MAX_FILES = 3;
+
+    /**
+     * 缓冲区为空时后台线程的休眠时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static final String LEVELS = "VDIWEA";
+
+    private final File dir;
+    private final String name;
+    private final int fileSize;
+    private final int maxFiles;
+
+    // 环形缓冲区，每个槽位的序号表示其状态：等于写入位置时可写，等于写入位置+1时可读
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final long[] threadIds;
+    private final int[] levels;
+    private final String[] tags;
+    private final String[] messages;
+    private final Throwable[] throwables;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    // 以下字段只在后台线程使用
+    private long head = 0;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(256);
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss", Locale.US);
+    private final Date date = new Date();
+    // SimpleDateFormat较慢，同一秒内的记录复用格式化好的时间
+    private long second = -1;
+    private String secondText;
+
+    public AsyncFileLogSink(File dir, String name) {
+        this(dir, name, DEFAULT_FILE_SIZE, DEFAULT_MAX_FILES, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param dir      日志目录
+     * @param name     日志文件名，不含扩展名
+     * @param fileSize 单个日志文件的大小，字节
+     * @param maxFiles 保留的日志文件个数，包括当前文件
+     * @param capacity 缓冲区可容纳的记录数，会向上取整为2的幂
+     */
+    public AsyncFileLogSink(File dir, String name, int fileSize, int maxFiles, int capacity) {
+        if (fileSize <= 0 || maxFiles <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("fileSize, maxFiles and capacity must be positive");
+        }
+        this.dir = dir;
+        this.name = name;
+        this.fileSize = fileSize;
+        this.maxFiles = maxFiles;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.times = new long[size];
+        this.threadIds = new long[size];
+        this.levels = new int[size];
+        this.tags = new String[size];
+        this.messages = new String[size];
+        this.throwables = new Throwable[size];
+
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                drainLoop();
+            }
+        }, "YYXXSupport-LogWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public boolean isLoggable(int priority, String tag) {
+        return !closed;
+    }
+
+    /**
+     * 放入一条记录，缓冲区已满或已关闭时丢弃
+     */
+    @Override
+    public void log(int priority, String tag, String message, Throwable tr) {
+        if (closed) {
+            return;
+        }
+        long pos;
+        int index;
+        while (true) {
+            pos = tail.get();
+            index = (int) (pos & mask);
+            long sequence = sequences.get(index);
+            if (sequence == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+            } else if (sequence < pos) {
+                // 缓冲区已满
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        times[index] = System.currentTimeMillis();
+        threadIds[index] = Thread.currentThread().getId();
+        levels[index] = priority;
+        tags[index] = tag;
+        messages[index] = message;
+        throwables[index] = tr;
+        sequences.set(index, pos + 1);
+        if ((pos & (mask >> 1)) == 0) {
+            // 每写入半个缓冲区唤醒一次后台线程，减少突发日志被丢弃
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * 缓冲区满而丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 写完缓冲区中的记录后关闭文件，之后的日志都会被丢弃
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+    }
+
+    private void drainLoop() {
+        try {
+            openFile(true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeFile();
+        }
+        while (true) {
+            boolean wasClosed = closed;
+            int count = drain();
+            if (count == 0) {
+                if (wasClosed) {
+                    break;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        closeFile();
+    }
+
+    /**
+     * 写出缓冲区中所有可读的记录
+     *
+     * @return 写出的记录数
+     */
+    private int drain() {
+        int count = 0;
+        while (true) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return count;
+            }
+            long time = times[index];
+            long threadId = threadIds[index];
+            int level = levels[index];
+            String tag = tags[index];
+            String message = messages[index];
+            Throwable tr = throwables[index];
+            tags[index] = null;
+            messages[index] = null;
+            throwables[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            count++;
+            if (buffer != null) {
+                try {
+                    write(time, threadId, level, tag, message, tr);
+                } catch (RuntimeException e) {
+                    // 一条记录出错不能让后台线程退出，否则之后的日志都会被丢弃
+                    writePlaceholder(time, threadId, level, tag, e);
+                }
+            }
+        }
+    }
+
+    private void writePlaceholder(long time, long threadId, int level, String tag, RuntimeException e) {
+        try {
+            write(time, threadId, level, tag, "<log record failed: " + e + ">", null);
+        } catch (RuntimeException ignored) {
+            // 占位行也写不出时放弃这条记录
+        }
+    }
+
+    private void write(long time, long threadId, int level, String tag, String message, Throwable tr) {
+        line.setLength(0);
+        appendTime(time);
+        line.append(' ').append(threadId).append(' ');
+        line.append(level >= Log.VERBOSE && level <= Log.ASSERT ? LEVELS.charAt(level - Log.VERBOSE) : '?');
+        line.append('/').append(tag).append(": ").append(message).append('\n');
+        if (tr != null) {
+            line.append(Log.getStackTraceString(tr)).append('\n');
+        }
+        try {
+            // 剩余空间可能放不下这一行时先滚动，保证一行不被拆到两个文件
+            if (buffer.position() > 0 && buffer.remaining() < line.length() * 3) {
+                rotate();
+            }
+            CharBuffer chars = CharBuffer.wrap(line);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (!result.isOverflow()) {
+                    break;
+                }
+                // 单行超过整个文件大小
+                rotate();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeFile();
+        }
+    }
+
+    /**
+     * 追加MM-dd HH:mm:ss.SSS格式的时间
+     */
+    private void appendTime(long time) {
+        long sec = time / 1000;
+        if (sec != second) {
+            date.setTime(sec * 1000);
+            secondText = dateFormat.format(date);
+            second = sec;
+        }
+        int millis = (int) (time - sec * 1000);
+        line.append(secondText).append('.');
+        if (millis < 100) {
+            line.append('0');
+        }
+        if (millis < 10) {
+            line.append('0');
+        }
+        line.append(millis);
+    }
+
+    private File getFile(int index) {
+        return new File(dir, index == 0 ? name + ".log" : name + "." + index + ".log");
+    }
+
+    private void openFile(boolean rotateExisting) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        File current = getFile(0);
+        if (rotateExisting && current.length() > 0) {
+            shiftFiles();
+        }
+        file = new RandomAccessFile(current, "rw");
+        channel = file.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        shiftFiles();
+        openFile(false);
+    }
+
+    private void shiftFiles() {
+        File oldest = getFile(maxFiles - 1);
+        if (oldest.exists() && !oldest.delete()) {
+            LogUtils.e("cannot delete " + oldest);
+        }
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            File from = getFile(i);
+            if (from.exists() && !from.renameTo(getFile(i + 1))) {
+                LogUtils.e("cannot rename " + from);
+            }
+        }
+    }
+
+    /**
+     * 关闭当前文件，并截掉映射区域中未写入的部分
+     */
+    private void closeFile() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+                channel.truncate(buffer.position());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            buffer = null;
+            channel = null;
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                file = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package cn.yyxx.support.hawkeye;
+
+/**
+ * 日志输出端，通过{@link LogUtils#setSink(LogSink)}设置
+ * <p>
+ * LogUtils在拼接日志前先调用{@link #isLoggable(int, String)}，不需要的日志不会被转换为字符串
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+public interface LogSink {
+
+    /**
+     * @param priority 日志级别，如Log.DEBUG
+     * @return 是否输出该级别和tag的日志
+     */
+    boolean isLoggable(int priority, String tag);
+
+    /**
+     * 输出一条日志，可在任意线程调用
+     *
+     * @param tr 附带的异常，可为null
+     */
+    void log(int priority, String tag, String message, Throwable tr);
+}
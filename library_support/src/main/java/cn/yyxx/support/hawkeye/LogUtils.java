@@ -4,7 +4,7 @@ import android.os.Handler;
 import android.os.Message;
 import android.util.Log;
 
-import java.lang.reflect.Array;
+import java.util.Arrays;
 
 /**
  * @author #Suyghur.
@@ -17,6 +17,26 @@ public class LogUtils {
 
     private static final String TAG = "yyxx_support";
 
+    /**
+     * 默认输出到logcat
+     */
+    private static final LogSink LOGCAT = new LogSink() {
+        @Override
+        public boolean isLoggable(int priority, String tag) {
+            return true;
+        }
+
+        @Override
+        public void log(int priority, String tag, String message, Throwable tr) {
+            if (tr != null) {
+                message = message + '\n' + Log.getStackTraceString(tr);
+            }
+            Log.println(priority, tag, message);
+        }
+    };
+
+    private static volatile LogSink sink = LOGCAT;
+
     public static void d(Object object) {
         d(TAG, object);
     }
@@ -43,41 +63,67 @@ public class LogUtils {
         print(Log.ERROR, tag, object);
     }
 
+    /**
+     * 设置日志输出，null恢复为默认的logcat
+     * <p>
+     * 运行时的volley支持VolleyLog.setSink时，Volley的日志也交给同一个输出端，见{@link VolleyLogBridge}
+     *
+     * @return Volley是否共用该输出端
+     */
+    public static boolean setSink(LogSink sink) {
+        LogUtils.sink = sink != null ? sink : LOGCAT;
+        return VolleyLogBridge.install(sink);
+    }
+
+    public static LogSink getSink() {
+        return sink;
+    }
+
     private static void print(int level, String tag, Object obj) {
-        String msg;
-        if (obj == null) {
-            msg = "null";
-        } else {
-            Class<?> clz = obj.getClass();
-            if (clz.isArray()) {
-                StringBuilder sb = new StringBuilder(clz.getSimpleName());
-                sb.append(" [ ");
-                int len = Array.getLength(obj);
-                for (int i = 0; i < len; i++) {
-                    if (i != 0 && i != len - 1) {
-                        sb.append(", ");
-                    }
-                    Object tmp = Array.get(obj, i);
-                    sb.append(tmp);
-                }
-                sb.append(" ] ");
-                msg = sb.toString();
-            } else {
-                msg = obj + "";
-            }
+        LogSink sink = LogUtils.sink;
+        // 输出端不需要时不拼接字符串
+        if (!sink.isLoggable(level, tag)) {
+            return;
         }
+        // 在调用线程转换为字符串，记录的是调用时的状态，也不会持有可变参数的引用
+        sink.log(level, tag, format(obj), null);
+    }
 
-        switch (level) {
-            case Log.DEBUG:
-                Log.d(tag, msg);
-                break;
-            case Log.INFO:
-                Log.i(tag, msg);
-                break;
-            case Log.ERROR:
-                Log.e(tag, msg);
-                break;
+    /**
+     * 转换为日志字符串，数组输出其元素
+     */
+    private static String format(Object obj) {
+        if (obj == null) {
+            return "null";
+        }
+        if (obj instanceof String) {
+            return (String) obj;
+        }
+        Class<?> clz = obj.getClass();
+        if (!clz.isArray()) {
+            return obj.toString();
+        }
+        String elements;
+        if (obj instanceof Object[]) {
+            elements = Arrays.deepToString((Object[]) obj);
+        } else if (obj instanceof int[]) {
+            elements = Arrays.toString((int[]) obj);
+        } else if (obj instanceof long[]) {
+            elements = Arrays.toString((long[]) obj);
+        } else if (obj instanceof byte[]) {
+            elements = Arrays.toString((byte[]) obj);
+        } else if (obj instanceof short[]) {
+            elements = Arrays.toString((short[]) obj);
+        } else if (obj instanceof char[]) {
+            elements = Arrays.toString((char[]) obj);
+        } else if (obj instanceof boolean[]) {
+            elements = Arrays.toString((boolean[]) obj);
+        } else if (obj instanceof float[]) {
+            elements = Arrays.toString((float[]) obj);
+        } else {
+            elements = Arrays.toString((double[]) obj);
         }
+        return clz.getSimpleName() + " " + elements;
     }
 
     public static void logHandler(Handler handler, String msg) {
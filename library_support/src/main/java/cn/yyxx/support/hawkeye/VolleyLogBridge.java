@@ -0,0 +1,94 @@
+package cn.yyxx.support.hawkeye;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * 把{@link LogSink}设置为VolleyLog的输出端，使LogUtils与Volley共用一个输出端
+ * <p>
+ * library_support编译时依赖libs下预编译的volley jar，其中没有VolleyLog.setSink和Volley的LogSink接口，
+ * 因此不能直接引用，这里在运行时通过反射和动态代理适配：
+ * 运行时的volley带有VolleyLog.setSink（由library_volley或library_volleyx重新makeJar生成）时，
+ * Volley的日志交给同一个输出端；旧的jar没有该接口，Volley仍然输出到logcat
+ *
+ * @author #Suyghur.
+ * Created on 2026/10/17
+ */
+final class VolleyLogBridge {
+
+    private static final String VOLLEY_LOG = "cn.yyxx.support.volley.source.VolleyLog";
+
+    private static final String VOLLEY_LOG_SINK = "cn.yyxx.support.volley.source.LogSink";
+
+    private VolleyLogBridge() {
+        /* cannot be instantiated */
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 设置VolleyLog的输出端
+     *
+     * @param sink 输出端，null恢复为Volley默认的logcat
+     * @return 运行时的volley是否支持设置输出端
+     */
+    static boolean install(LogSink sink) {
+        Class<?> volleyLog;
+        Class<?> volleySink;
+        Method setSink;
+        try {
+            volleyLog = Class.forName(VOLLEY_LOG);
+            volleySink = Class.forName(VOLLEY_LOG_SINK);
+            setSink = volleyLog.getMethod("setSink", volleySink);
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+        try {
+            Object target;
+            if (sink == null) {
+                target = volleyLog.getField("LOGCAT_SINK").get(null);
+            } else {
+                target = Proxy.newProxyInstance(volleySink.getClassLoader(),
+                        new Class<?>[]{volleySink}, new SinkHandler(sink));
+            }
+            setSink.invoke(null, target);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 把Volley LogSink的isLoggable和log转发给hawkeye的LogSink
+     */
+    private static class SinkHandler implements InvocationHandler {
+
+        private final LogSink sink;
+
+        SinkHandler(LogSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("isLoggable".equals(name)) {
+                return sink.isLoggable((Integer) args[0], (String) args[1]);
+            }
+            if ("log".equals(name)) {
+                sink.log((Integer) args[0], (String) args[1], (String) args[2], (Throwable) args[3]);
+                return null;
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            return "VolleyLogBridge[" + sink + "]";
+        }
+    }
+}
@@ -12,7 +12,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import cn.yyxx.support.cache.bitmap.DiskLruCache;
-import cn.yyxx.support.encryption.Md5Utils;
+import cn.yyxx.support.encryption.DigestUtils;
 import cn.yyxx.support.hawkeye.LogUtils;
 import cn.yyxx.support.volley.source.toolbox.ImageLoader;
 
@@ -98,13 +98,12 @@ public class VolleyBitmapCache implements ImageLoader.ImageCache {
 
     @Override
     public Bitmap getBitmap(String url) {
-        String key = Md5Utils.encodeByMD5(url);
         //先从内存中查找
         Bitmap bitmap = lruCache.get(url);
         if (bitmap == null) {
-            //加载本地
+            //加载本地，内存未命中时才计算key
             LogUtils.d("getBitmap 加载本地 url : " + url);
-            bitmap = getBitmap4DiskLruCache(key);
+            bitmap = getBitmap4DiskLruCache(DigestUtils.md5Hex(url));
             //加载到内存
             if (bitmap != null) {
                 LogUtils.d("getBitmap 加载到内存 url : " + url);
@@ -117,7 +116,7 @@ public class VolleyBitmapCache implements ImageLoader.ImageCache {
     @Override
     public void putBitmap(String url, Bitmap bitmap) {
         lruCache.put(url, bitmap);
-        String key = Md5Utils.encodeByMD5(url);
+        String key = DigestUtils.md5Hex(url);
         putBitmap2DiskLruCache(key, bitmap);
     }
 
@@ -0,0 +1,22 @@
+package cn.yyxx.support.volley.source;
+
+/**
+ * Destination of the log messages written by {@link VolleyLog}.
+ *
+ * <p>Callers check {@link #isLoggable} before building a message, so a sink which drops messages
+ * of some priority or tag saves their formatting as well.
+ *
+ * @see VolleyLog#setSink(LogSink)
+ */
+public interface LogSink {
+
+    /** Returns whether messages of the given priority, e.g. {@code Log.DEBUG}, and tag are kept. */
+    boolean isLoggable(int priority, String tag);
+
+    /**
+     * Writes a log message. Can be called from any thread.
+     *
+     * @param tr throwable to log with the message, or null
+     */
+    void log(int priority, String tag, String message, Throwable tr);
+}
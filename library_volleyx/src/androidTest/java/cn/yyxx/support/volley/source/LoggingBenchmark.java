@@ -0,0 +1,169 @@
+package cn.yyxx.support.volley.source;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures the cost of {@link VolleyLog} calls that are dropped and that are formatted, and the
+ * cost per request of recording markers with {@link VolleyLog.MarkerLog} and with {@link
+ * RequestTracer}.
+ *
+ * <p>The results are logged under the tag {@value #TAG}; run with {@code ./gradlew
+ * :library_volleyx:connectedAndroidTest} and read them with {@code adb logcat -s
+ * LoggingBenchmark}. Allocations are counted with {@link Debug#getThreadAllocCount()}, which
+ * only works in debuggable builds such as the test APK.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoggingBenchmark {
+
+    private static final String TAG = "LoggingBenchmark";
+
+    private static final int WARMUP_ITERATIONS = 10000;
+
+    private static final int MEASURED_ITERATIONS = 100000;
+
+    /** Markers a request served from the network goes through. */
+    private static final String[] MARKERS = {
+        "add-to-queue",
+        "cache-queue-take",
+        "cache-miss",
+        "network-queue-take",
+        "network-http-complete",
+        "network-parse-complete",
+        "network-cache-written",
+        "post-response"
+    };
+
+    private static final String URL = "https://example.com/api/items?page=1";
+
+    /** A sink that keeps every message and discards it, so only Volley's own work is measured. */
+    private static final LogSink DISCARDING_SINK =
+            new LogSink() {
+                @Override
+                public boolean isLoggable(int priority, String tag) {
+                    return true;
+                }
+
+                @Override
+                public void log(int priority, String tag, String message, Throwable tr) {}
+            };
+
+    /** A single iteration of a benchmark. */
+    private interface Operation {
+        void run();
+    }
+
+    @Before
+    public void setUp() {
+        VolleyLog.setSink(DISCARDING_SINK);
+    }
+
+    @After
+    public void tearDown() {
+        VolleyLog.setSink(VolleyLog.LOGCAT_SINK);
+        VolleyLog.setMinPriority(VolleyLog.DEBUG ? Log.VERBOSE : Log.INFO);
+        VolleyLog.setIncludeCaller(VolleyLog.DEBUG);
+        RequestTracer.setEnabled(false);
+        RequestTracer.clear();
+    }
+
+    @Test
+    public void volleyLogDropped() {
+        VolleyLog.setMinPriority(Log.INFO);
+        measure("VolleyLog.d, dropped", new LogOperation());
+    }
+
+    @Test
+    public void volleyLogFormatted() {
+        VolleyLog.setMinPriority(Log.VERBOSE);
+        VolleyLog.setIncludeCaller(false);
+        measure("VolleyLog.d, formatted", new LogOperation());
+    }
+
+    @Test
+    public void volleyLogFormattedWithCaller() {
+        VolleyLog.setMinPriority(Log.VERBOSE);
+        VolleyLog.setIncludeCaller(true);
+        measure("VolleyLog.d, formatted with caller", new LogOperation());
+    }
+
+    @Test
+    public void markerLog() {
+        // Drop the dump of the finished log, as a release build does.
+        VolleyLog.setMinPriority(Log.INFO);
+        measure(
+                "MarkerLog, per request",
+                new Operation() {
+                    @Override
+                    public void run() {
+                        VolleyLog.MarkerLog log = new VolleyLog.MarkerLog();
+                        long threadId = Thread.currentThread().getId();
+                        for (String marker : MARKERS) {
+                            log.add(marker, threadId);
+                        }
+                        log.add("done", threadId);
+                        log.finish(URL);
+                    }
+                });
+    }
+
+    @Test
+    public void requestTracer() {
+        RequestTracer.setEnabled(true);
+        measure(
+                "RequestTracer, per request",
+                new Operation() {
+                    @Override
+                    public void run() {
+                        RequestTracer.Trace trace = RequestTracer.newTrace();
+                        for (String marker : MARKERS) {
+                            trace.add(marker);
+                        }
+                        trace.finish("done", URL, 1);
+                    }
+                });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void measure(String name, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operation.run();
+        }
+        long wall = System.nanoTime() - start;
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+        Log.i(
+                TAG,
+                String.format(
+                        Locale.US,
+                        "%s: %.1f ns, %.1f allocations per call",
+                        name,
+                        (double) wall / MEASURED_ITERATIONS,
+                        (double) allocations / MEASURED_ITERATIONS));
+    }
+
+    /** Logs a typical debug message with two arguments. */
+    private static class LogOperation implements Operation {
+        private int mCount;
+
+        @Override
+        public void run() {
+            VolleyLog.d("%s: response took %d ms", URL, mCount++);
+        }
+    }
+}
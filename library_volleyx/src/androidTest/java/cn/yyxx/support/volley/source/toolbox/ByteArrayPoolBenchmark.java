@@ -0,0 +1,102 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the cost of taking a buffer from and returning it to a {@link ByteArrayPool} and a
+ * {@link BucketedByteArrayPool}, from one thread and from as many threads as there are network
+ * dispatchers by default.
+ *
+ * <p>The results are logged under the tag {@value #TAG}; run with {@code ./gradlew
+ * :library_volleyx:connectedAndroidTest} and read them with {@code adb logcat -s
+ * ByteArrayPoolBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ByteArrayPoolBenchmark {
+
+    private static final String TAG = "ByteArrayPoolBenchmark";
+
+    private static final int POOL_SIZE = 64 * 1024;
+
+    private static final int OPERATIONS_PER_THREAD = 200000;
+
+    /** Requested buffer sizes, cycled through, like the reads of responses of varying size. */
+    private static final int[] SIZES = {1024, 4096, 4096, 8192, 3000, 16 * 1024, 512, 4096};
+
+    @Test
+    public void byteArrayPool() throws Exception {
+        measure("ByteArrayPool", new ByteArrayPool(POOL_SIZE), 1);
+        measure("ByteArrayPool", new ByteArrayPool(POOL_SIZE), 4);
+    }
+
+    @Test
+    public void bucketedByteArrayPool() throws Exception {
+        measure("BucketedByteArrayPool", new BucketedByteArrayPool(POOL_SIZE), 1);
+        measure("BucketedByteArrayPool", new BucketedByteArrayPool(POOL_SIZE), 4);
+    }
+
+    private void measure(String name, final ByteArrayPool pool, int threadCount)
+            throws Exception {
+        // Warm up the pool and the code paths before measuring.
+        run(pool, threadCount, OPERATIONS_PER_THREAD);
+        long wall = run(pool, threadCount, OPERATIONS_PER_THREAD);
+        Log.i(
+                TAG,
+                String.format(
+                        Locale.US,
+                        "%s, %d thread(s): %.1f ns per getBuf/returnBuf",
+                        name,
+                        threadCount,
+                        (double) wall / OPERATIONS_PER_THREAD));
+    }
+
+    /** Runs the operations on the given number of threads and returns the wall time in nanos. */
+    private static long run(final ByteArrayPool pool, int threadCount, final int operations)
+            throws Exception {
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t;
+            threads[t] =
+                    new Thread(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        startSignal.await();
+                                        for (int i = 0; i < operations; i++) {
+                                            int len = SIZES[(i + offset) % SIZES.length];
+                                            byte[] buf = pool.getBuf(len);
+                                            // Fails if the buffer is too small.
+                                            buf[len - 1] = 1;
+                                            pool.returnBuf(buf);
+                                        }
+                                    } catch (Throwable e) {
+                                        failure.compareAndSet(null, e);
+                                    }
+                                }
+                            });
+            threads[t].start();
+        }
+        long start = System.nanoTime();
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long wall = System.nanoTime() - start;
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        return wall;
+    }
+}
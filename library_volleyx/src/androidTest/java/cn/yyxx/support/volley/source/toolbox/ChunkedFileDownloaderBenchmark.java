@@ -0,0 +1,208 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import cn.yyxx.support.volley.source.Response;
+import cn.yyxx.support.volley.source.VolleyError;
+
+/**
+ * Measures how long {@link ChunkedFileDownloader} takes to download a file with one and with
+ * several parallel range connections, from a {@link LoopbackHttpServer} that limits the bandwidth
+ * of each connection.
+ *
+ * <p>The results are logged under the tag {@value #TAG}; run with {@code ./gradlew
+ * :library_volleyx:connectedAndroidTest} and read them with {@code adb logcat -s
+ * ChunkedDownloadBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChunkedFileDownloaderBenchmark {
+
+    private static final String TAG = "ChunkedDownloadBenchmark";
+
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+
+    private static final long BYTES_PER_SECOND_PER_CONNECTION = 4 * 1024 * 1024;
+
+    private static final int MEASURED_DOWNLOADS = 3;
+
+    private static final byte[] FILE = createFile(FILE_SIZE);
+
+    private LoopbackHttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    private File mTarget;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer =
+                new LoopbackHttpServer(
+                        new LoopbackHttpServer.Handler() {
+                            @Override
+                            public LoopbackHttpServer.Response handle(
+                                    String method, String path, Map<String, String> headers) {
+                                return respond(headers.get("range"));
+                            }
+                        });
+        mServer.setBytesPerSecondPerConnection(BYTES_PER_SECOND_PER_CONNECTION);
+        mExecutor = Executors.newCachedThreadPool();
+        mTarget =
+                new File(
+                        InstrumentationRegistry.getInstrumentation()
+                                .getTargetContext()
+                                .getCacheDir(),
+                        "chunked-download-benchmark.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+        mExecutor.shutdownNow();
+        mTarget.delete();
+    }
+
+    @Test
+    public void singleConnection() throws Exception {
+        measure(1);
+    }
+
+    @Test
+    public void twoConnections() throws Exception {
+        measure(2);
+    }
+
+    @Test
+    public void fourConnections() throws Exception {
+        measure(4);
+    }
+
+    @Test
+    public void eightConnections() throws Exception {
+        measure(8);
+    }
+
+    private void measure(int segmentCount) throws Exception {
+        ChunkedFileDownloader downloader =
+                new ChunkedFileDownloader.Builder(new HurlStack(), mExecutor)
+                        .setSegmentCount(segmentCount)
+                        .setDeliveryExecutor(
+                                new Executor() {
+                                    @Override
+                                    public void execute(Runnable command) {
+                                        command.run();
+                                    }
+                                })
+                        .build();
+        long total = 0;
+        for (int i = 0; i < MEASURED_DOWNLOADS; i++) {
+            mTarget.delete();
+            long start = System.nanoTime();
+            download(downloader);
+            total += System.nanoTime() - start;
+            assertArrayEquals(FILE, readFile(mTarget));
+        }
+        long wall = total / MEASURED_DOWNLOADS;
+        Log.i(
+                TAG,
+                String.format(
+                        Locale.US,
+                        "%d connection(s): %.0f ms per %d KB download, %.2f MB/s"
+                                + " (%d KB/s per connection)",
+                        segmentCount,
+                        wall / 1e6,
+                        FILE_SIZE / 1024,
+                        FILE_SIZE / (wall / 1e9) / (1024 * 1024),
+                        BYTES_PER_SECOND_PER_CONNECTION / 1024));
+    }
+
+    private void download(ChunkedFileDownloader downloader) throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<VolleyError> error = new AtomicReference<>();
+        downloader.download(
+                mServer.url("/file"),
+                mTarget,
+                new Response.Listener<File>() {
+                    @Override
+                    public void onResponse(File response) {
+                        done.countDown();
+                    }
+                },
+                new Response.ErrorListener() {
+                    @Override
+                    public void onErrorResponse(VolleyError e) {
+                        error.set(e);
+                        done.countDown();
+                    }
+                },
+                null);
+        assertTrue("Download timed out", done.await(60, TimeUnit.SECONDS));
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    /** Serves the file, or the part of it the Range header asks for. */
+    private static LoopbackHttpServer.Response respond(String range) {
+        if (range == null) {
+            return new LoopbackHttpServer.Response(200, FILE)
+                    .header("Accept-Ranges", "bytes")
+                    .header("ETag", "\"benchmark\"");
+        }
+        // Only the "bytes=first-last" and "bytes=first-" forms are sent by the downloader.
+        String[] bounds = range.substring("bytes=".length()).split("-", -1);
+        int first = Integer.parseInt(bounds[0]);
+        int last = bounds[1].isEmpty() ? FILE.length - 1 : Integer.parseInt(bounds[1]);
+        return new LoopbackHttpServer.Response(206, Arrays.copyOfRange(FILE, first, last + 1))
+                .header("Accept-Ranges", "bytes")
+                .header("ETag", "\"benchmark\"")
+                .header("Content-Range", "bytes " + first + "-" + last + "/" + FILE.length);
+    }
+
+    private static byte[] createFile(int size) {
+        byte[] file = new byte[size];
+        new Random(42).nextBytes(file);
+        return file;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            int count;
+            while (offset < bytes.length
+                    && (count = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += count;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,214 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import cn.yyxx.support.volley.source.Cache;
+import cn.yyxx.support.volley.source.Header;
+
+/**
+ * Compares the {@link Cache} implementations on the operations they were written to speed up:
+ * writing entries, initializing over a populated directory, and reading entries from several
+ * threads at once.
+ *
+ * <p>The results are logged under the tag {@value #TAG}; run with {@code ./gradlew
+ * :library_volleyx:connectedAndroidTest} and read them with {@code adb logcat -s
+ * DiskCacheBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiskCacheBenchmark {
+
+    private static final String TAG = "DiskCacheBenchmark";
+
+    private static final int ENTRY_COUNT = 500;
+
+    private static final int ENTRY_SIZE = 4 * 1024;
+
+    private static final int MAX_CACHE_SIZE = 8 * 1024 * 1024;
+
+    private static final int READER_THREADS = 4;
+
+    private static final int READS_PER_THREAD = 500;
+
+    /** Creates the cache to measure in the given directory. */
+    private interface CacheFactory {
+        Cache create(File rootDirectory);
+    }
+
+    private File mRootDirectory;
+
+    @Before
+    public void setUp() {
+        mRootDirectory =
+                new File(
+                        InstrumentationRegistry.getInstrumentation()
+                                .getTargetContext()
+                                .getCacheDir(),
+                        "disk-cache-benchmark");
+        deleteRecursively(mRootDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(mRootDirectory);
+    }
+
+    @Test
+    public void diskBasedCache() throws Exception {
+        measure(
+                "DiskBasedCache",
+                new CacheFactory() {
+                    @Override
+                    public Cache create(File rootDirectory) {
+                        return new DiskBasedCache(rootDirectory, MAX_CACHE_SIZE);
+                    }
+                });
+    }
+
+    @Test
+    public void concurrentDiskBasedCache() throws Exception {
+        measure(
+                "ConcurrentDiskBasedCache",
+                new CacheFactory() {
+                    @Override
+                    public Cache create(File rootDirectory) {
+                        return new ConcurrentDiskBasedCache(rootDirectory, MAX_CACHE_SIZE);
+                    }
+                });
+    }
+
+    @Test
+    public void segmentedDiskBasedCache() throws Exception {
+        measure(
+                "SegmentedDiskBasedCache",
+                new CacheFactory() {
+                    @Override
+                    public Cache create(File rootDirectory) {
+                        return new SegmentedDiskBasedCache(rootDirectory, MAX_CACHE_SIZE);
+                    }
+                });
+    }
+
+    @Test
+    public void tieredCache() throws Exception {
+        measure(
+                "TieredCache over DiskBasedCache",
+                new CacheFactory() {
+                    @Override
+                    public Cache create(File rootDirectory) {
+                        return new TieredCache(
+                                new DiskBasedCache(rootDirectory, MAX_CACHE_SIZE),
+                                /* maxMemoryBytes= */ 4 * 1024 * 1024,
+                                /* maxEntryBytes= */ 64 * 1024);
+                    }
+                });
+    }
+
+    private void measure(String name, CacheFactory factory) throws Exception {
+        Cache cache = factory.create(mRootDirectory);
+        cache.initialize();
+        long start = System.nanoTime();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put(getKey(i), createEntry(i));
+        }
+        long put = (System.nanoTime() - start) / ENTRY_COUNT;
+
+        // A new instance, as after a restart of the app, has to initialize from disk.
+        final Cache reopened = factory.create(mRootDirectory);
+        start = System.nanoTime();
+        reopened.initialize();
+        long initialize = System.nanoTime() - start;
+
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[READER_THREADS];
+        for (int t = 0; t < READER_THREADS; t++) {
+            final Random random = new Random(t);
+            readers[t] =
+                    new Thread(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        startSignal.await();
+                                        for (int i = 0; i < READS_PER_THREAD; i++) {
+                                            int index = random.nextInt(ENTRY_COUNT);
+                                            Cache.Entry entry = reopened.get(getKey(index));
+                                            assertNotNull(entry);
+                                            assertEquals(ENTRY_SIZE, entry.data.length);
+                                        }
+                                    } catch (Throwable e) {
+                                        failure.compareAndSet(null, e);
+                                    }
+                                }
+                            });
+            readers[t].start();
+        }
+        start = System.nanoTime();
+        startSignal.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        long read = (System.nanoTime() - start) / (READER_THREADS * READS_PER_THREAD);
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        Log.i(
+                TAG,
+                String.format(
+                        Locale.US,
+                        "%s: %.1f us per put, %.1f ms to initialize %d entries,"
+                                + " %.1f us per get with %d threads",
+                        name,
+                        put / 1000.0,
+                        initialize / 1e6,
+                        ENTRY_COUNT,
+                        read / 1000.0,
+                        READER_THREADS));
+    }
+
+    private static String getKey(int index) {
+        return "https://example.com/api/items?page=" + index;
+    }
+
+    private static Cache.Entry createEntry(int index) {
+        Cache.Entry entry = new Cache.Entry();
+        entry.data = new byte[ENTRY_SIZE];
+        new Random(index).nextBytes(entry.data);
+        entry.etag = "\"" + index + "\"";
+        entry.serverDate = System.currentTimeMillis();
+        entry.ttl = Long.MAX_VALUE;
+        entry.softTtl = Long.MAX_VALUE;
+        entry.allResponseHeaders =
+                Collections.singletonList(new Header("Content-Type", "application/json"));
+        return entry;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
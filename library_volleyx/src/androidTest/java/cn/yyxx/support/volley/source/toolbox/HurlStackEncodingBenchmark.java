@@ -0,0 +1,223 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import static org.junit.Assert.assertEquals;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import cn.yyxx.support.volley.source.NetworkResponse;
+import cn.yyxx.support.volley.source.Request;
+import cn.yyxx.support.volley.source.Response;
+
+/**
+ * Measures the bytes on the wire and the client CPU time per request for the response encodings
+ * {@link HurlStack} negotiates, against a {@link LoopbackHttpServer}.
+ *
+ * <p>The results are logged under the tag {@value #TAG}; run with {@code ./gradlew
+ * :library_volleyx:connectedAndroidTest} and read them with {@code adb logcat -s
+ * HurlStackBenchmark}. CPU time is the thread CPU time of the calling thread, which reads and
+ * decodes the body.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HurlStackEncodingBenchmark {
+
+    private static final String TAG = "HurlStackBenchmark";
+
+    private static final int WARMUP_REQUESTS = 10;
+
+    private static final int MEASURED_REQUESTS = 100;
+
+    /** A compressible JSON body of about 64 KB, like a typical list response. */
+    private static final byte[] BODY = createBody(64 * 1024);
+
+    private LoopbackHttpServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        final Map<String, byte[]> bodies = new HashMap<>();
+        bodies.put("gzip", gzip(BODY));
+        bodies.put("deflate", deflate(BODY, /* nowrap= */ false));
+        bodies.put("raw-deflate", deflate(BODY, /* nowrap= */ true));
+        mServer =
+                new LoopbackHttpServer(
+                        new LoopbackHttpServer.Handler() {
+                            @Override
+                            public LoopbackHttpServer.Response handle(
+                                    String method, String path, Map<String, String> headers) {
+                                // The path names the encoding to respond with.
+                                String encoding = path.substring(1);
+                                byte[] body = bodies.get(encoding);
+                                if (body == null) {
+                                    return new LoopbackHttpServer.Response(200, BODY)
+                                            .header("Content-Type", "application/json");
+                                }
+                                return new LoopbackHttpServer.Response(200, body)
+                                        .header("Content-Type", "application/json")
+                                        .header(
+                                                "Content-Encoding",
+                                                encoding.equals("gzip") ? "gzip" : "deflate");
+                            }
+                        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void identity() throws Exception {
+        measure("identity", "/identity", "identity");
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        measure("gzip", "/gzip", null);
+    }
+
+    @Test
+    public void deflate() throws Exception {
+        measure("deflate (zlib)", "/deflate", null);
+    }
+
+    @Test
+    public void rawDeflate() throws Exception {
+        measure("deflate (raw)", "/raw-deflate", null);
+    }
+
+    /**
+     * @param acceptEncoding Accept-Encoding set by the request, or null to let {@link HurlStack}
+     *     negotiate and decode
+     */
+    private void measure(String name, String path, String acceptEncoding) throws Exception {
+        HurlStack stack = new HurlStack();
+        BenchmarkRequest request = new BenchmarkRequest(mServer.url(path), acceptEncoding);
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            assertEquals(BODY.length, execute(stack, request));
+        }
+        mServer.resetBytesWritten();
+        long startCpu = Debug.threadCpuTimeNanos();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            assertEquals(BODY.length, execute(stack, request));
+        }
+        long wall = System.nanoTime() - start;
+        long cpu = Debug.threadCpuTimeNanos() - startCpu;
+        Log.i(
+                TAG,
+                String.format(
+                        Locale.US,
+                        "%s: %d bytes on the wire, %.1f us CPU, %.1f us wall per request"
+                                + " (%d bytes decoded)",
+                        name,
+                        mServer.getBytesWritten() / MEASURED_REQUESTS,
+                        cpu / 1000.0 / MEASURED_REQUESTS,
+                        wall / 1000.0 / MEASURED_REQUESTS,
+                        BODY.length));
+    }
+
+    /** Executes the request and returns the length of the body, read in full. */
+    private static int execute(HurlStack stack, Request<?> request) throws Exception {
+        HttpResponse response =
+                stack.executeRequest(request, Collections.<String, String>emptyMap());
+        InputStream content = response.getContent();
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        try {
+            int count;
+            while ((count = content.read(buffer)) != -1) {
+                length += count;
+            }
+        } finally {
+            content.close();
+        }
+        return length;
+    }
+
+    private static byte[] createBody(int size) {
+        StringBuilder sb = new StringBuilder(size + 128);
+        sb.append('[');
+        for (int i = 0; sb.length() < size - 1; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":")
+                    .append(i)
+                    .append(",\"name\":\"item-")
+                    .append(i)
+                    .append("\",\"price\":")
+                    .append(i * 37 % 1000)
+                    .append(",\"tags\":[\"new\",\"sale\"]}");
+        }
+        sb.setLength(size - 1);
+        sb.append(']');
+        try {
+            return sb.toString().getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean nowrap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater);
+        out.write(data);
+        out.close();
+        deflater.end();
+        return bytes.toByteArray();
+    }
+
+    /** A GET request that is only passed to the stack, never queued. */
+    private static class BenchmarkRequest extends Request<Void> {
+        private final Map<String, String> mHeaders;
+
+        BenchmarkRequest(String url, String acceptEncoding) {
+            super(Method.GET, url, null);
+            mHeaders =
+                    acceptEncoding == null
+                            ? Collections.<String, String>emptyMap()
+                            : Collections.singletonMap(
+                                    HttpContentEncoding.HEADER_ACCEPT_ENCODING, acceptEncoding);
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return mHeaders;
+        }
+
+        @Override
+        protected Response<Void> parseNetworkResponse(NetworkResponse response) {
+            return null;
+        }
+
+        @Override
+        protected void deliverResponse(Void response) {}
+    }
+}
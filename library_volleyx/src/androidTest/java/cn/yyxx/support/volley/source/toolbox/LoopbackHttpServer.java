@@ -0,0 +1,213 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A minimal HTTP/1.1 server on the loopback interface for the benchmarks.
+ *
+ * <p>Every connection serves a single request and is then closed. Request bodies are not
+ * supported. The server counts the bytes it writes, headers included, so benchmarks can report
+ * the bytes on the wire. The rate each connection sends at can be limited, to model a link or
+ * server that caps the bandwidth of a single connection.
+ */
+final class LoopbackHttpServer implements Closeable {
+
+    /** Produces the response for a request. Called on a connection thread. */
+    interface Handler {
+        /**
+         * @param headers the request headers, with lower case names
+         */
+        Response handle(String method, String path, Map<String, String> headers)
+                throws IOException;
+    }
+
+    /** A response to write back; the Content-Length header is added by the server. */
+    static final class Response {
+        final int statusCode;
+        final Map<String, String> headers = new LinkedHashMap<>();
+        final byte[] body;
+
+        Response(int statusCode, byte[] body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        Response header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    /** Size of the writes of a throttled connection. */
+    private static final int THROTTLED_CHUNK_BYTES = 8 * 1024;
+
+    private final ServerSocket mServerSocket;
+    private final Handler mHandler;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final AtomicLong mBytesWritten = new AtomicLong();
+    private volatile long mBytesPerSecondPerConnection = 0;
+
+    LoopbackHttpServer(Handler handler) throws IOException {
+        mHandler = handler;
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        acceptLoop();
+                    }
+                });
+    }
+
+    /** Returns the URL of the given path on this server. */
+    String url(String path) {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + path;
+    }
+
+    /** Returns the bytes written since the server started or the last reset. */
+    long getBytesWritten() {
+        return mBytesWritten.get();
+    }
+
+    void resetBytesWritten() {
+        mBytesWritten.set(0);
+    }
+
+    /**
+     * Limits the rate each connection sends its response body at.
+     *
+     * @param bytesPerSecond the limit, or 0 to send at full speed
+     */
+    void setBytesPerSecondPerConnection(long bytesPerSecond) {
+        mBytesPerSecondPerConnection = bytesPerSecond;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mServerSocket.close();
+        mExecutor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            mExecutor.execute(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    });
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return;
+            }
+            String[] parts = requestLine.split(" ");
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(
+                            line.substring(0, colon).trim().toLowerCase(Locale.US),
+                            line.substring(colon + 1).trim());
+                }
+            }
+            Response response =
+                    mHandler.handle(parts[0], parts[1], Collections.unmodifiableMap(headers));
+            write(socket.getOutputStream(), "HEAD".equals(parts[0]), response);
+        } catch (IOException e) {
+            // The client went away; nothing to do.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignored.
+            }
+        }
+    }
+
+    private void write(OutputStream out, boolean headRequest, Response response)
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HTTP/1.1 ").append(response.statusCode).append(" OK\r\n");
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        sb.append("Content-Length: ").append(response.body.length).append("\r\n");
+        sb.append("Connection: close\r\n\r\n");
+        byte[] head = sb.toString().getBytes("ISO-8859-1");
+        out.write(head);
+        mBytesWritten.addAndGet(head.length);
+        if (!headRequest) {
+            writeBody(out, response.body);
+        }
+        out.flush();
+    }
+
+    private void writeBody(OutputStream out, byte[] body) throws IOException {
+        long bytesPerSecond = mBytesPerSecondPerConnection;
+        if (bytesPerSecond <= 0) {
+            out.write(body);
+            mBytesWritten.addAndGet(body.length);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; ) {
+            int count = Math.min(THROTTLED_CHUNK_BYTES, body.length - offset);
+            out.write(body, offset, count);
+            mBytesWritten.addAndGet(count);
+            offset += count;
+            // Sleep until the bytes sent so far are due at the configured rate.
+            long dueMs = offset * 1000L / bytesPerSecond - (System.nanoTime() - start) / 1000000;
+            if (dueMs > 0) {
+                try {
+                    Thread.sleep(dueMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return line.toString("ISO-8859-1").trim();
+            }
+            line.write(b);
+        }
+        return line.size() > 0 ? line.toString("ISO-8859-1") : null;
+    }
+}
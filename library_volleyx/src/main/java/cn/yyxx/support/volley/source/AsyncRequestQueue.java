@@ -24,7 +24,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.net.HttpURLConnection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -96,6 +100,12 @@ public class AsyncRequestQueue extends RequestQueue {
      */
     private final WaitingRequestManager mWaitingRequestManager = new WaitingRequestManager(this);
 
+    /**
+     * Limits the network requests in flight per host and in total, or null if they are not limited.
+     */
+    @Nullable
+    private final HostScheduler mHostScheduler;
+
     /**
      * Sets all the variables, but processing does not begin until {@link #start()} is called.
      *
@@ -107,17 +117,62 @@ public class AsyncRequestQueue extends RequestQueue {
      * @param responseDelivery interface for posting responses and errors
      * @param executorFactory  Interface to be used to provide custom executors according to the
      *                         users needs.
+     * @param maxRequestsPerHost  Maximum number of network requests in flight to a single host,
+     *                            or 0 for no limit
+     * @param maxRequestsInFlight Maximum number of network requests in flight to all hosts, or 0
+     *                            for no limit
+     * @param hostWeights         Share of free slots given to each host, by lower case host name
      */
     private AsyncRequestQueue(
             Cache cache,
             AsyncNetwork network,
             @Nullable AsyncCache asyncCache,
             ResponseDelivery responseDelivery,
-            ExecutorFactory executorFactory) {
+            ExecutorFactory executorFactory,
+            int maxRequestsPerHost,
+            int maxRequestsInFlight,
+            Map<String, Integer> hostWeights) {
         super(cache, network, /* threadPoolSize= */ 0, responseDelivery);
         mAsyncCache = asyncCache;
         mNetwork = network;
         mExecutorFactory = executorFactory;
+        if (maxRequestsPerHost > 0 || maxRequestsInFlight > 0) {
+            mHostScheduler =
+                    new HostScheduler(
+                            maxRequestsPerHost > 0 ? maxRequestsPerHost : Integer.MAX_VALUE,
+                            maxRequestsInFlight > 0 ? maxRequestsInFlight : Integer.MAX_VALUE,
+                            hostWeights,
+                            new HostScheduler.Dispatcher() {
+                                @Override
+                                public void dispatch(Request<?> request) {
+                                    mNonBlockingExecutor.execute(new NetworkTask<>(request));
+                                }
+                            });
+        } else {
+            mHostScheduler = null;
+        }
+    }
+
+    /**
+     * Returns the number of network requests waiting for a free slot, for each host that has any.
+     * Always empty unless per-host or total limits were set on the {@link Builder}.
+     */
+    public Map<String, Integer> getHostQueueDepths() {
+        if (mHostScheduler == null) {
+            return Collections.emptyMap();
+        }
+        return mHostScheduler.getQueueDepths();
+    }
+
+    /**
+     * Returns the number of network requests in flight, for each host that has any. Always empty
+     * unless per-host or total limits were set on the {@link Builder}.
+     */
+    public Map<String, Integer> getHostInFlightCounts() {
+        if (mHostScheduler == null) {
+            return Collections.emptyMap();
+        }
+        return mHostScheduler.getInFlightCounts();
     }
 
     /**
@@ -195,14 +250,25 @@ public class AsyncRequestQueue extends RequestQueue {
             } else {
                 mBlockingExecutor.execute(new CacheTask<>(request));
             }
-        } else {
+        } else if (!maybeCoalesce(request)) {
             sendRequestOverNetwork(request);
         }
     }
 
     @Override
     <T> void sendRequestOverNetwork(Request<T> request) {
-        mNonBlockingExecutor.execute(new NetworkTask<>(request));
+        if (mHostScheduler != null) {
+            mHostScheduler.schedule(request);
+        } else {
+            mNonBlockingExecutor.execute(new NetworkTask<>(request));
+        }
+    }
+
+    /** Frees the slot of a request whose network phase is over, if requests are scheduled. */
+    private void releaseHostSlot(Request<?> request) {
+        if (mHostScheduler != null) {
+            mHostScheduler.release(request);
+        }
     }
 
     /**
@@ -353,6 +419,7 @@ public class AsyncRequestQueue extends RequestQueue {
             if (mRequest.isCanceled()) {
                 mRequest.finish("network-discard-cancelled");
                 mRequest.notifyListenerResponseNotUsable();
+                releaseHostSlot(mRequest);
                 return;
             }
 
@@ -369,6 +436,11 @@ public class AsyncRequestQueue extends RequestQueue {
                         @Override
                         public void onSuccess(final NetworkResponse networkResponse) {
                             mRequest.addMarker("network-http-complete");
+                            releaseHostSlot(mRequest);
+                            mRequest.setNetworkBytesReceived(
+                                    NetworkDispatcher.getBodySize(networkResponse));
+                            mRequest.sendEvent(
+                                    RequestQueue.RequestEvent.REQUEST_NETWORK_RESPONSE_RECEIVED);
 
                             // If the server returned 304 AND we delivered a response already,
                             // we're done -- don't deliver a second identical response.
@@ -387,6 +459,7 @@ public class AsyncRequestQueue extends RequestQueue {
                         public void onError(final VolleyError volleyError) {
                             volleyError.setNetworkTimeMs(
                                     SystemClock.elapsedRealtime() - startTimeMs);
+                            releaseHostSlot(mRequest);
                             mBlockingExecutor.execute(new ParseErrorTask<>(mRequest, volleyError));
                         }
                     });
@@ -521,6 +594,9 @@ public class AsyncRequestQueue extends RequestQueue {
         private ExecutorFactory mExecutorFactory = null;
         @Nullable
         private ResponseDelivery mResponseDelivery = null;
+        private int mMaxRequestsPerHost = 0;
+        private int mMaxRequestsInFlight = 0;
+        private final Map<String, Integer> mHostWeights = new HashMap<>();
 
         public Builder(AsyncNetwork asyncNetwork) {
             if (asyncNetwork == null) {
@@ -564,6 +640,44 @@ public class AsyncRequestQueue extends RequestQueue {
             return this;
         }
 
+        /**
+         * Limits the number of network requests in flight to a single host. Further requests to the
+         * host wait, ordered by priority, until one of them completes. Unlimited by default.
+         */
+        public Builder setMaxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost <= 0) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be positive");
+            }
+            mMaxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Limits the number of network requests in flight to all hosts together. Free slots are
+         * shared between the hosts with waiting requests in proportion to their weights. Unlimited by
+         * default.
+         */
+        public Builder setMaxRequestsInFlight(int maxRequestsInFlight) {
+            if (maxRequestsInFlight <= 0) {
+                throw new IllegalArgumentException("maxRequestsInFlight must be positive");
+            }
+            mMaxRequestsInFlight = maxRequestsInFlight;
+            return this;
+        }
+
+        /**
+         * Sets the share of free slots given to a host while several hosts have waiting requests.
+         * Hosts have weight 1 by default. Only takes effect together with {@link
+         * #setMaxRequestsPerHost} or {@link #setMaxRequestsInFlight}.
+         */
+        public Builder setHostWeight(String host, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be positive");
+            }
+            mHostWeights.put(host.toLowerCase(Locale.US), weight);
+            return this;
+        }
+
         /**
          * Provides a default ExecutorFactory to use, if one is never set.
          */
@@ -635,7 +749,14 @@ public class AsyncRequestQueue extends RequestQueue {
                 mExecutorFactory = getDefaultExecutorFactory();
             }
             return new AsyncRequestQueue(
-                    mCache, mNetwork, mAsyncCache, mResponseDelivery, mExecutorFactory);
+                    mCache,
+                    mNetwork,
+                    mAsyncCache,
+                    mResponseDelivery,
+                    mExecutorFactory,
+                    mMaxRequestsPerHost,
+                    mMaxRequestsInFlight,
+                    mHostWeights);
         }
     }
 
@@ -0,0 +1,58 @@
+package cn.yyxx.support.volley.source;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Decides which non-cacheable requests are identical, so that a {@link RequestQueue} can send only
+ * one of them over the network and deliver its response to all of them.
+ *
+ * <p>Cacheable requests are already deduplicated by their cache key and are not affected, and
+ * neither are requests that {@link Request#setShouldCoalesce opted out}, which includes {@link
+ * cn.yyxx.support.volley.source.toolbox.StreamingRequest}s by default. The policy is not
+ * consulted for them, so their {@link Request#getHeaders()} is not called.
+ *
+ * <p>By default, GET requests are identical if they are of the same class and have the same URL
+ * and the same values for the header names given to the constructor. Override {@link
+ * #getCoalescingKey} to change this.
+ *
+ * @see RequestQueue#setCoalescingPolicy(CoalescingPolicy)
+ */
+public class CoalescingPolicy {
+
+    private final String[] mHeaderNames;
+
+    /**
+     * @param headerNames names of the request headers that are part of a request's identity, e.g.
+     *     an authorization header
+     */
+    public CoalescingPolicy(String... headerNames) {
+        mHeaderNames = headerNames.clone();
+    }
+
+    /**
+     * Returns the identity of the request, or null if it should never be coalesced. Two requests
+     * with equal keys in flight at the same time share a single network response.
+     */
+    @Nullable
+    public String getCoalescingKey(Request<?> request) {
+        if (request.getMethod() != Request.Method.GET) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(request.getClass().getName()).append(' ').append(request.getUrl());
+        if (mHeaderNames.length > 0) {
+            Map<String, String> headers;
+            try {
+                headers = request.getHeaders();
+            } catch (AuthFailureError e) {
+                return null;
+            }
+            for (String name : mHeaderNames) {
+                key.append('\n').append(name).append(": ").append(headers.get(name));
+            }
+        }
+        return key.toString();
+    }
+}
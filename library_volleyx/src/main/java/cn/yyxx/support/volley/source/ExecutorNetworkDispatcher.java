@@ -0,0 +1,110 @@
+package cn.yyxx.support.volley.source;
+
+import android.os.Process;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Provides a thread that hands requests from a queue to an {@link Executor} for their network
+ * phase, instead of performing it on a fixed set of {@link NetworkDispatcher} threads.
+ *
+ * <p>The number of requests in flight is limited per host by a {@link HostScheduler}, so slow
+ * endpoints can't hold up requests to other hosts. The network phase itself is the same as in
+ * {@link NetworkDispatcher}.
+ */
+class ExecutorNetworkDispatcher extends Thread {
+
+    /** The queue of requests to service. */
+    private final BlockingQueue<Request<?>> mQueue;
+    /** Performs the network phase of a request on the calling thread. */
+    private final NetworkDispatcher mRequestProcessor;
+    /** Limits the requests in flight per host. */
+    private final HostScheduler mScheduler;
+    /** Used for telling us to die. */
+    private volatile boolean mQuit = false;
+
+    /**
+     * Creates a new dispatcher thread. You must call {@link #start()} in order to begin processing.
+     *
+     * @param queue Queue of incoming requests for triage
+     * @param network Network interface to use for performing requests
+     * @param cache Cache interface to use for writing responses to cache
+     * @param delivery Delivery interface to use for posting responses
+     * @param executor Executor to perform the network phase of requests on
+     * @param maxRequestsPerHost Maximum number of requests in flight to a single host
+     */
+    ExecutorNetworkDispatcher(
+            BlockingQueue<Request<?>> queue,
+            Network network,
+            Cache cache,
+            final ResponseDelivery delivery,
+            final Executor executor,
+            int maxRequestsPerHost) {
+        mQueue = queue;
+        // Never started; only used for its processRequest(Request).
+        mRequestProcessor = new NetworkDispatcher(queue, network, cache, delivery);
+        mScheduler =
+                new HostScheduler(
+                        maxRequestsPerHost,
+                        new HostScheduler.Dispatcher() {
+                            @Override
+                            public void dispatch(final Request<?> request) {
+                                try {
+                                    executor.execute(
+                                            new Runnable() {
+                                                @Override
+                                                public void run() {
+                                                    try {
+                                                        mRequestProcessor.processRequest(request);
+                                                    } finally {
+                                                        mScheduler.release(request);
+                                                    }
+                                                }
+                                            });
+                                } catch (RejectedExecutionException e) {
+                                    VolleyLog.e(e, "Network executor rejected %s", request);
+                                    delivery.postError(request, new VolleyError(e));
+                                    request.notifyListenerResponseNotUsable();
+                                    mScheduler.release(request);
+                                }
+                            }
+                        });
+    }
+
+    /**
+     * Forces this dispatcher to quit immediately. Requests already handed to the executor are not
+     * affected.
+     */
+    public void quit() {
+        mQuit = true;
+        interrupt();
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        while (true) {
+            try {
+                processRequest();
+            } catch (InterruptedException e) {
+                // We may have been interrupted because it was time to quit.
+                if (mQuit) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                VolleyLog.e(
+                        "Ignoring spurious interrupt of ExecutorNetworkDispatcher thread; "
+                                + "use quit() to terminate it");
+            }
+        }
+    }
+
+    // Extracted to its own method to ensure locals have a constrained liveness scope by the GC.
+    private void processRequest() throws InterruptedException {
+        Request<?> request = mQueue.take();
+        request.addMarker("network-executor-schedule");
+        mScheduler.schedule(request);
+    }
+}
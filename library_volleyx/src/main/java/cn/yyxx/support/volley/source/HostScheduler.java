@@ -0,0 +1,231 @@
+package cn.yyxx.support.volley.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Limits the number of requests in flight, both to each host and in total, and shares the
+ * available slots fairly between hosts.
+ *
+ * <p>Requests are {@link #schedule scheduled} as they become ready for the network. If the host of
+ * a request has fewer requests in flight than the per-host limit and the total limit isn't reached
+ * either, it is handed to the {@link Dispatcher} right away. Otherwise it waits in a queue for its
+ * host, ordered by priority and then by sequence. Whenever a request is {@link #release released},
+ * its slot goes to the host chosen by smooth weighted round robin among the hosts with waiting
+ * requests and a free per-host slot, so a burst of requests to one host can't starve the others,
+ * and a host with weight 2 gets twice the slots of a host with weight 1 while both are busy.
+ */
+class HostScheduler {
+
+    /** Runs the network phase of requests handed out by the scheduler. */
+    interface Dispatcher {
+        /**
+         * Starts the network phase of the request. {@link #release} must be called once it is
+         * over, whether or not it succeeded.
+         */
+        void dispatch(Request<?> request);
+    }
+
+    /** Weight of hosts without a configured weight. */
+    static final int DEFAULT_HOST_WEIGHT = 1;
+
+    /** Requests to one host. Guarded by the scheduler. */
+    private static class HostQueue {
+        final PriorityQueue<Request<?>> mPending = new PriorityQueue<>();
+        final int mWeight;
+        int mInFlight = 0;
+        /** Running weight for smooth weighted round robin. */
+        int mCurrentWeight = 0;
+
+        HostQueue(int weight) {
+            mWeight = weight;
+        }
+    }
+
+    private final Map<String, HostQueue> mHosts = new HashMap<>();
+
+    private final Map<String, Integer> mHostWeights;
+
+    private final int mMaxRequestsPerHost;
+
+    private final int mMaxRequests;
+
+    private final Dispatcher mDispatcher;
+
+    /** Number of requests in flight to all hosts. Guarded by this. */
+    private int mInFlight = 0;
+
+    HostScheduler(int maxRequestsPerHost, @NonNull Dispatcher dispatcher) {
+        this(
+                maxRequestsPerHost,
+                Integer.MAX_VALUE,
+                Collections.<String, Integer>emptyMap(),
+                dispatcher);
+    }
+
+    /**
+     * @param maxRequestsPerHost Maximum number of requests in flight to a single host
+     * @param maxRequests Maximum number of requests in flight to all hosts together
+     * @param hostWeights Weights of hosts by lower case host name; others have weight 1
+     * @param dispatcher Runs the network phase of requests
+     */
+    HostScheduler(
+            int maxRequestsPerHost,
+            int maxRequests,
+            Map<String, Integer> hostWeights,
+            @NonNull Dispatcher dispatcher) {
+        if (maxRequestsPerHost <= 0 || maxRequests <= 0) {
+            throw new IllegalArgumentException("Request limits must be positive");
+        }
+        for (Integer weight : hostWeights.values()) {
+            if (weight == null || weight <= 0) {
+                throw new IllegalArgumentException("Host weights must be positive");
+            }
+        }
+        mMaxRequestsPerHost = maxRequestsPerHost;
+        mMaxRequests = maxRequests;
+        mHostWeights = new HashMap<>(hostWeights);
+        mDispatcher = dispatcher;
+    }
+
+    /** Dispatches the request, or queues it if its host or all hosts are at their limit. */
+    void schedule(Request<?> request) {
+        String host = getHost(request.getUrl());
+        synchronized (this) {
+            HostQueue queue = getOrCreateQueue(host);
+            if (queue.mInFlight >= mMaxRequestsPerHost || mInFlight >= mMaxRequests) {
+                request.addMarker("host-queue-wait");
+                queue.mPending.add(request);
+                return;
+            }
+            queue.mInFlight++;
+            mInFlight++;
+        }
+        mDispatcher.dispatch(request);
+    }
+
+    /** Ends the network phase of a dispatched request, and dispatches waiting requests. */
+    void release(Request<?> request) {
+        String host = getHost(request.getUrl());
+        List<Request<?>> next = new ArrayList<>();
+        synchronized (this) {
+            HostQueue queue = mHosts.get(host);
+            if (queue == null || queue.mInFlight == 0) {
+                return;
+            }
+            queue.mInFlight--;
+            mInFlight--;
+            while (mInFlight < mMaxRequests) {
+                HostQueue chosen = chooseNextHost();
+                if (chosen == null) {
+                    break;
+                }
+                chosen.mInFlight++;
+                mInFlight++;
+                next.add(chosen.mPending.poll());
+            }
+            if (queue.mInFlight == 0 && queue.mPending.isEmpty()) {
+                mHosts.remove(host);
+            }
+        }
+        for (Request<?> nextRequest : next) {
+            mDispatcher.dispatch(nextRequest);
+        }
+    }
+
+    /** Returns the number of requests waiting for each host with waiting requests. */
+    synchronized Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (Map.Entry<String, HostQueue> entry : mHosts.entrySet()) {
+            int depth = entry.getValue().mPending.size();
+            if (depth > 0) {
+                depths.put(entry.getKey(), depth);
+            }
+        }
+        return depths;
+    }
+
+    /** Returns the number of requests in flight to each host with requests in flight. */
+    synchronized Map<String, Integer> getInFlightCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, HostQueue> entry : mHosts.entrySet()) {
+            int count = entry.getValue().mInFlight;
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Picks the host to get the next free slot by smooth weighted round robin, or returns null if
+     * no host with waiting requests has a free slot. Must be called holding this lock.
+     */
+    private HostQueue chooseNextHost() {
+        HostQueue best = null;
+        int totalWeight = 0;
+        for (HostQueue queue : mHosts.values()) {
+            if (queue.mPending.isEmpty() || queue.mInFlight >= mMaxRequestsPerHost) {
+                continue;
+            }
+            queue.mCurrentWeight += queue.mWeight;
+            totalWeight += queue.mWeight;
+            if (best == null || queue.mCurrentWeight > best.mCurrentWeight) {
+                best = queue;
+            }
+        }
+        if (best != null) {
+            best.mCurrentWeight -= totalWeight;
+        }
+        return best;
+    }
+
+    private HostQueue getOrCreateQueue(String host) {
+        HostQueue queue = mHosts.get(host);
+        if (queue == null) {
+            Integer weight = mHostWeights.get(host);
+            queue = new HostQueue(weight != null ? weight : DEFAULT_HOST_WEIGHT);
+            mHosts.put(host, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Returns the host component of the URL, or an empty string if there is none. Parsed by hand
+     * rather than with {@link android.net.Uri} so that it works off-device as well.
+     */
+    @VisibleForTesting
+    static String getHost(String url) {
+        if (url == null) {
+            return "";
+        }
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        String authority = url.substring(start, end);
+        int at = authority.lastIndexOf('@');
+        if (at >= 0) {
+            authority = authority.substring(at + 1);
+        }
+        int colon = authority.lastIndexOf(':');
+        if (colon >= 0 && authority.indexOf(']') < colon) {
+            authority = authority.substring(0, colon);
+        }
+        return authority.toLowerCase(Locale.US);
+    }
+}
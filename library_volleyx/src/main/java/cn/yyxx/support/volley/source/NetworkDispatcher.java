@@ -133,6 +133,8 @@ public class NetworkDispatcher extends Thread {
             // Perform the network request.
             NetworkResponse networkResponse = mNetwork.performRequest(request);
             request.addMarker("network-http-complete");
+            request.setNetworkBytesReceived(getBodySize(networkResponse));
+            request.sendEvent(RequestQueue.RequestEvent.REQUEST_NETWORK_RESPONSE_RECEIVED);
 
             // If the server returned 304 AND we delivered a response already,
             // we're done -- don't deliver a second identical response.
@@ -172,6 +174,31 @@ public class NetworkDispatcher extends Thread {
         }
     }
 
+    /**
+     * Returns the size of the response body, falling back to its Content-Length for responses whose
+     * body was consumed while streaming.
+     */
+    static long getBodySize(NetworkResponse networkResponse) {
+        if (networkResponse.notModified) {
+            // A 304 has no body; its data is the cached entry's.
+            return 0;
+        }
+        if (networkResponse.data != null && networkResponse.data.length > 0) {
+            return networkResponse.data.length;
+        }
+        if (networkResponse.headers != null) {
+            String contentLength = networkResponse.headers.get("Content-Length");
+            if (contentLength != null) {
+                try {
+                    return Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    // Unknown size.
+                }
+            }
+        }
+        return 0;
+    }
+
     private void parseAndDeliverNetworkError(Request<?> request, VolleyError error) {
         error = request.parseNetworkError(error);
         mDelivery.postError(request, error);
@@ -81,6 +81,12 @@ public abstract class Request<T> implements Comparable<Request<T>> {
      */
     private final MarkerLog mEventLog = MarkerLog.ENABLED ? new MarkerLog() : null;
 
+    /**
+     * Markers of this request for {@link RequestTracer}, or null if tracing is disabled.
+     */
+    @Nullable
+    private final RequestTracer.Trace mTrace = RequestTracer.newTrace();
+
     /**
      * Request method of this request. Currently supports GET, POST, PUT, DELETE, HEAD, OPTIONS,
      * TRACE, and PATCH.
@@ -147,6 +153,16 @@ public abstract class Request<T> implements Comparable<Request<T>> {
      */
     private boolean mShouldRetryConnectionErrors = false;
 
+    /**
+     * Whether the request body should be compressed with gzip.
+     */
+    private boolean mShouldGzipBody = false;
+
+    /**
+     * Whether the request may share the response of an identical request in flight.
+     */
+    private boolean mShouldCoalesce = true;
+
     /**
      * The retry policy for this request.
      */
@@ -171,6 +187,16 @@ public abstract class Request<T> implements Comparable<Request<T>> {
     @GuardedBy("mLock")
     private NetworkRequestCompleteListener mRequestCompleteListener;
 
+    /**
+     * Size of the request body sent over the network, in bytes.
+     */
+    private volatile long mNetworkBytesSent = 0;
+
+    /**
+     * Size of the response body received over the network, in bytes.
+     */
+    private volatile long mNetworkBytesReceived = 0;
+
     /**
      * Creates a new request with the given URL and error listener. Note that the normal response
      * listener is not provided here as delivery of responses is provided by subclasses, who have a
@@ -275,6 +301,9 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         if (MarkerLog.ENABLED) {
             mEventLog.add(tag, Thread.currentThread().getId());
         }
+        if (mTrace != null) {
+            mTrace.add(tag);
+        }
     }
 
     /**
@@ -286,6 +315,9 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         if (mRequestQueue != null) {
             mRequestQueue.finish(this);
         }
+        if (mTrace != null) {
+            mTrace.finish(tag, mUrl, mSequence != null ? mSequence : -1);
+        }
         if (MarkerLog.ENABLED) {
             final long threadId = Thread.currentThread().getId();
             if (Looper.myLooper() != Looper.getMainLooper()) {
@@ -627,6 +659,43 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         return mShouldRetryConnectionErrors;
     }
 
+    /**
+     * Sets whether the request body should be sent compressed with gzip, with a Content-Encoding
+     * header. Only worth it for large bodies, and the server must accept gzip request bodies.
+     *
+     * @return This Request object to allow for chaining.
+     */
+    public final Request<?> setShouldGzipBody(boolean shouldGzipBody) {
+        mShouldGzipBody = shouldGzipBody;
+        return this;
+    }
+
+    /**
+     * Returns true if the request body should be sent compressed with gzip.
+     */
+    public final boolean shouldGzipBody() {
+        return mShouldGzipBody;
+    }
+
+    /**
+     * Sets whether the request may be coalesced with identical requests in flight when the queue
+     * has a {@link CoalescingPolicy}. Requests that have side effects of their own, e.g. in
+     * {@link #getHeaders()} or while parsing, should opt out.
+     *
+     * @return This Request object to allow for chaining.
+     */
+    public final Request<?> setShouldCoalesce(boolean shouldCoalesce) {
+        mShouldCoalesce = shouldCoalesce;
+        return this;
+    }
+
+    /**
+     * Returns true if the request may be coalesced with identical requests in flight.
+     */
+    public final boolean shouldCoalesce() {
+        return mShouldCoalesce;
+    }
+
     /**
      * Priority values. Requests will be processed from higher priorities to lower priorities, in
      * FIFO order.
@@ -661,6 +730,34 @@ public abstract class Request<T> implements Comparable<Request<T>> {
         return mRetryPolicy;
     }
 
+    /**
+     * Records the size of the request body sent over the network. Called by the HTTP stack.
+     */
+    public void setNetworkBytesSent(long bytes) {
+        mNetworkBytesSent = bytes;
+    }
+
+    /**
+     * Returns the size of the request body sent over the network, or 0 if none was sent.
+     */
+    public long getNetworkBytesSent() {
+        return mNetworkBytesSent;
+    }
+
+    /**
+     * Records the size of the response body received over the network.
+     */
+    void setNetworkBytesReceived(long bytes) {
+        mNetworkBytesReceived = bytes;
+    }
+
+    /**
+     * Returns the size of the response body received over the network, or 0 if none was received.
+     */
+    public long getNetworkBytesReceived() {
+        return mNetworkBytesReceived;
+    }
+
     /**
      * Mark this request as having a response delivered on it. This can be used later in the
      * request's lifetime for suppressing identical responses.
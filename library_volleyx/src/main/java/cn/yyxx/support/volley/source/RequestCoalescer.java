@@ -0,0 +1,121 @@
+package cn.yyxx.support.volley.source;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds back non-cacheable requests while an identical request is in flight, and hands them its
+ * response once it arrives. This is the counterpart of {@link WaitingRequestManager} for requests
+ * which don't go through the cache, with identity defined by a {@link CoalescingPolicy} instead of
+ * the cache key.
+ */
+class RequestCoalescer implements Request.NetworkRequestCompleteListener {
+
+    /**
+     * Staging area for requests that already have an identical request in flight.
+     *
+     * <ul>
+     *   <li>containsKey(key) indicates that there is a request in flight for the given key.
+     *   <li>get(key) returns waiting requests for the given key. The in flight request is
+     *       <em>not</em> contained in that list. Is null if no requests are staged.
+     * </ul>
+     */
+    private final Map<String, List<Request<?>>> mWaitingRequests = new HashMap<>();
+
+    /** Key of each request in flight, as the policy may not return the same key twice. */
+    private final Map<Request<?>, String> mInFlightKeys = new HashMap<>();
+
+    private final RequestQueue mRequestQueue;
+
+    private final CoalescingPolicy mPolicy;
+
+    RequestCoalescer(@NonNull RequestQueue requestQueue, @NonNull CoalescingPolicy policy) {
+        mRequestQueue = requestQueue;
+        mPolicy = policy;
+    }
+
+    /** Request received a response, which is handed to all identical waiting requests. */
+    @Override
+    public void onResponseReceived(Request<?> request, Response<?> response) {
+        List<Request<?>> waitingRequests;
+        String key;
+        synchronized (this) {
+            key = mInFlightKeys.remove(request);
+            if (key == null) {
+                return;
+            }
+            waitingRequests = mWaitingRequests.remove(key);
+        }
+        if (waitingRequests != null) {
+            if (VolleyLog.DEBUG) {
+                VolleyLog.v(
+                        "Releasing %d coalesced requests for %s.", waitingRequests.size(), key);
+            }
+            for (Request<?> waiting : waitingRequests) {
+                waiting.addMarker("coalesced-response");
+                mRequestQueue.getResponseDelivery().postResponse(waiting, response);
+            }
+        }
+    }
+
+    /** No valid response received from network, send the next waiting request instead. */
+    @Override
+    public synchronized void onNoUsableResponseReceived(Request<?> request) {
+        String key = mInFlightKeys.remove(request);
+        if (key == null) {
+            return;
+        }
+        List<Request<?>> waitingRequests = mWaitingRequests.remove(key);
+        if (waitingRequests != null && !waitingRequests.isEmpty()) {
+            if (VolleyLog.DEBUG) {
+                VolleyLog.v(
+                        "%d coalesced requests for %s; resend to network",
+                        waitingRequests.size(), key);
+            }
+            Request<?> nextInLine = waitingRequests.remove(0);
+            mWaitingRequests.put(key, waitingRequests);
+            mInFlightKeys.put(nextInLine, key);
+            nextInLine.setNetworkRequestCompleteListener(this);
+            mRequestQueue.sendRequestOverNetwork(nextInLine);
+        }
+    }
+
+    /**
+     * If an identical request is already in flight, adds the request to the ones waiting for its
+     * response.
+     *
+     * @return whether the request was put on hold. If false, the request should be sent over the
+     *     network.
+     */
+    synchronized boolean maybeAddToWaitingRequests(Request<?> request) {
+        if (!request.shouldCoalesce()) {
+            return false;
+        }
+        String key = mPolicy.getCoalescingKey(request);
+        if (key == null) {
+            return false;
+        }
+        if (mWaitingRequests.containsKey(key)) {
+            List<Request<?>> stagedRequests = mWaitingRequests.get(key);
+            if (stagedRequests == null) {
+                stagedRequests = new ArrayList<>();
+            }
+            request.addMarker("waiting-for-coalesced-response");
+            stagedRequests.add(request);
+            mWaitingRequests.put(key, stagedRequests);
+            if (VolleyLog.DEBUG) {
+                VolleyLog.d("Identical request for %s is in flight, putting on hold.", key);
+            }
+            return true;
+        } else {
+            mWaitingRequests.put(key, null);
+            mInFlightKeys.put(request, key);
+            request.setNetworkRequestCompleteListener(this);
+            return false;
+        }
+    }
+}
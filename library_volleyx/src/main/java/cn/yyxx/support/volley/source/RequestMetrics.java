@@ -0,0 +1,364 @@
+package cn.yyxx.support.volley.source;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects request timings, traffic and cache statistics from {@link RequestQueue.RequestEvent}s,
+ * cheaply enough to stay enabled in release builds.
+ *
+ * <p>Unlike the marker log, which only records while {@link VolleyLog#DEBUG} is set, this keeps
+ * aggregates only: a latency histogram per phase of a request, and counters for bytes, cache hits
+ * and retries. They are grouped by host by default; override {@link #getGroupKey} to group
+ * requests differently, e.g. by tag. Register it with {@link
+ * RequestQueue#addRequestEventListener} and read the numbers with {@link #getSnapshot()}.
+ *
+ * <p>All latencies are in microseconds. Requests that were already queued when the listener was
+ * added are not counted.
+ */
+public class RequestMetrics implements RequestQueue.RequestEventListener {
+
+    /** Phases of a request that latencies are recorded for. */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+        Phase.QUEUE_WAIT,
+        Phase.CACHE_LOOKUP,
+        Phase.NETWORK,
+        Phase.PARSE,
+        Phase.DELIVERY,
+        Phase.TOTAL
+    })
+    public @interface Phase {
+        /** Time spent waiting in the cache and network queues. */
+        public static final int QUEUE_WAIT = 0;
+        /** Time spent looking up the request in the cache. */
+        public static final int CACHE_LOOKUP = 1;
+        /** Time from the start of the network dispatch until the response was received. */
+        public static final int NETWORK = 2;
+        /** Time spent parsing the network response and writing it to the cache. */
+        public static final int PARSE = 3;
+        /** Time from posting the response until the request finished. */
+        public static final int DELIVERY = 4;
+        /** Time from adding the request to the queue until it finished. */
+        public static final int TOTAL = 5;
+    }
+
+    private static final int PHASE_COUNT = 6;
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /** Times of the events of a request in flight, from {@link System#nanoTime()}. */
+    private static class Timeline {
+        final long mQueued;
+        volatile long mCacheLookupStarted = UNSET;
+        volatile long mCacheLookupFinished = UNSET;
+        volatile long mNetworkStarted = UNSET;
+        volatile long mResponseReceived = UNSET;
+        volatile long mNetworkFinished = UNSET;
+
+        Timeline(long queued) {
+            mQueued = queued;
+        }
+    }
+
+    /** Aggregates of one group of requests. */
+    private static class Group {
+        final LatencyHistogram[] mLatencies = new LatencyHistogram[PHASE_COUNT];
+        final AtomicLong mRequests = new AtomicLong();
+        final AtomicLong mBytesSent = new AtomicLong();
+        final AtomicLong mBytesReceived = new AtomicLong();
+        final AtomicLong mCacheLookups = new AtomicLong();
+        final AtomicLong mCacheHits = new AtomicLong();
+        final AtomicLong mRetries = new AtomicLong();
+
+        Group() {
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                mLatencies[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Timelines of the requests in flight. Keyed weakly, so requests that never finish, e.g.
+     * because their queue was stopped, don't stay reachable from here.
+     */
+    private final Map<Request<?>, Timeline> mTimelines =
+            Collections.synchronizedMap(new WeakHashMap<Request<?>, Timeline>());
+
+    private final ConcurrentMap<String, Group> mGroups = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequestEvent(Request<?> request, @RequestQueue.RequestEvent int event) {
+        long now = System.nanoTime();
+        if (event == RequestQueue.RequestEvent.REQUEST_QUEUED) {
+            mTimelines.put(request, new Timeline(now));
+            return;
+        }
+        Timeline timeline =
+                event == RequestQueue.RequestEvent.REQUEST_FINISHED
+                        ? mTimelines.remove(request)
+                        : mTimelines.get(request);
+        if (timeline == null) {
+            return;
+        }
+        switch (event) {
+            case RequestQueue.RequestEvent.REQUEST_CACHE_LOOKUP_STARTED:
+                timeline.mCacheLookupStarted = now;
+                break;
+            case RequestQueue.RequestEvent.REQUEST_CACHE_LOOKUP_FINISHED:
+                timeline.mCacheLookupFinished = now;
+                break;
+            case RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_STARTED:
+                timeline.mNetworkStarted = now;
+                break;
+            case RequestQueue.RequestEvent.REQUEST_NETWORK_RESPONSE_RECEIVED:
+                timeline.mResponseReceived = now;
+                break;
+            case RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_FINISHED:
+                timeline.mNetworkFinished = now;
+                break;
+            case RequestQueue.RequestEvent.REQUEST_FINISHED:
+                record(request, timeline, now);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the name of the group the request's numbers are added to. Defaults to the host of
+     * the request URL.
+     */
+    protected String getGroupKey(Request<?> request) {
+        return HostScheduler.getHost(request.getUrl());
+    }
+
+    /** Returns a copy of the numbers collected so far. */
+    public Snapshot getSnapshot() {
+        Map<String, GroupMetrics> groups = new HashMap<>();
+        for (Map.Entry<String, Group> entry : mGroups.entrySet()) {
+            groups.put(entry.getKey(), new GroupMetrics(entry.getValue()));
+        }
+        return new Snapshot(groups);
+    }
+
+    /** Discards the numbers collected so far. Requests in flight are still counted. */
+    public void reset() {
+        mGroups.clear();
+    }
+
+    private void record(Request<?> request, Timeline timeline, long finished) {
+        Group group = getGroup(getGroupKey(request));
+        group.mRequests.incrementAndGet();
+
+        long cacheStarted = timeline.mCacheLookupStarted;
+        long cacheFinished = timeline.mCacheLookupFinished;
+        long networkStarted = timeline.mNetworkStarted;
+        long responseReceived = timeline.mResponseReceived;
+        long networkFinished = timeline.mNetworkFinished;
+
+        long queueWait = UNSET;
+        if (cacheStarted != UNSET) {
+            queueWait = cacheStarted - timeline.mQueued;
+            if (cacheFinished != UNSET && networkStarted != UNSET) {
+                queueWait += networkStarted - cacheFinished;
+            }
+        } else if (networkStarted != UNSET) {
+            queueWait = networkStarted - timeline.mQueued;
+        }
+        if (queueWait != UNSET) {
+            group.mLatencies[Phase.QUEUE_WAIT].record(queueWait / 1000);
+        }
+        record(group, Phase.CACHE_LOOKUP, cacheFinished, cacheStarted);
+        record(group, Phase.NETWORK, responseReceived, networkStarted);
+        record(group, Phase.PARSE, networkFinished, responseReceived);
+        record(
+                group,
+                Phase.DELIVERY,
+                finished,
+                networkFinished != UNSET ? networkFinished : cacheFinished);
+        record(group, Phase.TOTAL, finished, timeline.mQueued);
+
+        if (cacheFinished != UNSET) {
+            group.mCacheLookups.incrementAndGet();
+            if (networkStarted == UNSET) {
+                group.mCacheHits.incrementAndGet();
+            }
+        }
+        group.mBytesSent.addAndGet(request.getNetworkBytesSent());
+        group.mBytesReceived.addAndGet(request.getNetworkBytesReceived());
+        RetryPolicy retryPolicy = request.getRetryPolicy();
+        if (retryPolicy != null) {
+            group.mRetries.addAndGet(retryPolicy.getCurrentRetryCount());
+        }
+    }
+
+    /** Records the time between two events, if both happened. */
+    private static void record(Group group, @Phase int phase, long end, long start) {
+        if (end == UNSET || start == UNSET) {
+            return;
+        }
+        group.mLatencies[phase].record((end - start) / 1000);
+    }
+
+    private Group getGroup(String key) {
+        Group group = mGroups.get(key);
+        if (group == null) {
+            Group newGroup = new Group();
+            group = mGroups.putIfAbsent(key, newGroup);
+            if (group == null) {
+                group = newGroup;
+            }
+        }
+        return group;
+    }
+
+    /** Numbers collected by a {@link RequestMetrics}, by group. */
+    public static final class Snapshot {
+        private final Map<String, GroupMetrics> mGroups;
+
+        Snapshot(Map<String, GroupMetrics> groups) {
+            mGroups = Collections.unmodifiableMap(groups);
+        }
+
+        /** Returns the numbers of every group, by group key. */
+        public Map<String, GroupMetrics> getGroups() {
+            return mGroups;
+        }
+
+        /** Returns the numbers of a group, or null if no request of that group finished. */
+        @Nullable
+        public GroupMetrics getGroup(String key) {
+            return mGroups.get(key);
+        }
+    }
+
+    /** Numbers collected for one group of requests. */
+    public static final class GroupMetrics {
+        private final Histogram[] mLatencies = new Histogram[PHASE_COUNT];
+        private final long mRequestCount;
+        private final long mBytesSent;
+        private final long mBytesReceived;
+        private final long mCacheLookupCount;
+        private final long mCacheHitCount;
+        private final long mRetryCount;
+
+        GroupMetrics(Group group) {
+            for (int i = 0; i < PHASE_COUNT; i++) {
+                mLatencies[i] = group.mLatencies[i].snapshot();
+            }
+            mRequestCount = group.mRequests.get();
+            mBytesSent = group.mBytesSent.get();
+            mBytesReceived = group.mBytesReceived.get();
+            mCacheLookupCount = group.mCacheLookups.get();
+            mCacheHitCount = group.mCacheHits.get();
+            mRetryCount = group.mRetries.get();
+        }
+
+        /** Returns the latencies of the given phase. */
+        public Histogram getLatency(@Phase int phase) {
+            return mLatencies[phase];
+        }
+
+        /** Returns the number of requests that finished. */
+        public long getRequestCount() {
+            return mRequestCount;
+        }
+
+        /** Returns the total size of the request bodies sent. */
+        public long getBytesSent() {
+            return mBytesSent;
+        }
+
+        /** Returns the total size of the response bodies received over the network. */
+        public long getBytesReceived() {
+            return mBytesReceived;
+        }
+
+        /** Returns the number of requests that were looked up in the cache. */
+        public long getCacheLookupCount() {
+            return mCacheLookupCount;
+        }
+
+        /** Returns the number of requests looked up in the cache that never went to the network. */
+        public long getCacheHitCount() {
+            return mCacheHitCount;
+        }
+
+        /** Returns the share of cache lookups that were hits, or 0 if there were none. */
+        public double getCacheHitRatio() {
+            return mCacheLookupCount == 0 ? 0 : (double) mCacheHitCount / mCacheLookupCount;
+        }
+
+        /** Returns the total number of retries. */
+        public long getRetryCount() {
+            return mRetryCount;
+        }
+    }
+
+    /** Distribution of the latencies of one phase, in microseconds. */
+    public static final class Histogram {
+        private final long[] mCounts;
+        private final long mCount;
+        private final long mSum;
+        private final long mMax;
+
+        Histogram(long[] counts, long sum, long max) {
+            mCounts = counts;
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        /** Returns the number of recorded latencies. */
+        public long getCount() {
+            return mCount;
+        }
+
+        /** Returns the mean latency, or 0 if none was recorded. */
+        public long getMeanMicros() {
+            return mCount == 0 ? 0 : mSum / mCount;
+        }
+
+        /** Returns the largest latency, or 0 if none was recorded. */
+        public long getMaxMicros() {
+            return mMax;
+        }
+
+        /**
+         * Returns the latency that the given percentage of recorded latencies don't exceed, e.g. 99
+         * for the 99th percentile, or 0 if none was recorded.
+         */
+        public long getPercentileMicros(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * mCount);
+            if (rank < 1) {
+                rank = 1;
+            }
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank) {
+                    return Math.min(LatencyHistogram.getBucketUpperBound(i), mMax);
+                }
+            }
+            return mMax;
+        }
+    }
+}
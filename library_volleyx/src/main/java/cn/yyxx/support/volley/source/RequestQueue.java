@@ -20,6 +20,7 @@ import android.os.Handler;
 import android.os.Looper;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -27,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -57,7 +59,8 @@ public class RequestQueue {
         RequestEvent.REQUEST_CACHE_LOOKUP_FINISHED,
         RequestEvent.REQUEST_NETWORK_DISPATCH_STARTED,
         RequestEvent.REQUEST_NETWORK_DISPATCH_FINISHED,
-        RequestEvent.REQUEST_FINISHED
+        RequestEvent.REQUEST_FINISHED,
+        RequestEvent.REQUEST_NETWORK_RESPONSE_RECEIVED
     })
     public @interface RequestEvent {
         /** The request was added to the queue. */
@@ -78,6 +81,8 @@ public class RequestQueue {
          * queues.
          */
         public static final int REQUEST_FINISHED = 5;
+        /** The network response was received and is about to be parsed. */
+        public static final int REQUEST_NETWORK_RESPONSE_RECEIVED = 6;
     }
 
     /** Callback interface for request life cycle events. */
@@ -120,6 +125,17 @@ public class RequestQueue {
     /** The network dispatchers. */
     private final NetworkDispatcher[] mDispatchers;
 
+    /** Executor performing the network phase of requests, or null to use the dispatchers. */
+    @Nullable
+    private final Executor mNetworkExecutor;
+
+    /** Maximum number of requests in flight to a single host when using the executor. */
+    private final int mMaxRequestsPerHost;
+
+    /** Hands requests to the network executor, if there is one. */
+    @Nullable
+    private ExecutorNetworkDispatcher mExecutorDispatcher;
+
     /** The cache dispatcher. */
     private CacheDispatcher mCacheDispatcher;
 
@@ -128,6 +144,10 @@ public class RequestQueue {
     /** Collection of listeners for request life cycle events. */
     private final List<RequestEventListener> mEventListeners = new ArrayList<>();
 
+    /** Coalesces identical non-cacheable requests, or null if disabled. */
+    @Nullable
+    private volatile RequestCoalescer mRequestCoalescer;
+
     /**
      * Creates the worker pool. Processing will not begin until {@link #start()} is called.
      *
@@ -142,6 +162,59 @@ public class RequestQueue {
         mNetwork = network;
         mDispatchers = new NetworkDispatcher[threadPoolSize];
         mDelivery = delivery;
+        mNetworkExecutor = null;
+        mMaxRequestsPerHost = 0;
+    }
+
+    /**
+     * Creates a queue which performs the network phase of each request on the given executor
+     * instead of a fixed number of dispatcher threads. Rather than by the number of threads,
+     * concurrency is limited by the number of requests in flight to each host, so requests to slow
+     * endpoints don't hold up requests to other hosts. The executor should be able to run as many
+     * tasks at once as may be in flight, e.g. an elastic pool or, on JVMs that support them, one
+     * virtual thread per task. Processing will not begin until {@link #start()} is called.
+     *
+     * @param cache A Cache to use for persisting responses to disk
+     * @param network A Network interface for performing HTTP requests
+     * @param networkExecutor Executor to perform the network phase of requests on
+     * @param maxRequestsPerHost Maximum number of requests in flight to a single host
+     * @param delivery A ResponseDelivery interface for posting responses and errors
+     */
+    public RequestQueue(
+            Cache cache,
+            Network network,
+            Executor networkExecutor,
+            int maxRequestsPerHost,
+            ResponseDelivery delivery) {
+        if (maxRequestsPerHost <= 0) {
+            throw new IllegalArgumentException("maxRequestsPerHost must be positive");
+        }
+        mCache = cache;
+        mNetwork = network;
+        mDispatchers = new NetworkDispatcher[0];
+        mDelivery = delivery;
+        mNetworkExecutor = networkExecutor;
+        mMaxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    /**
+     * Creates a queue which performs the network phase of each request on the given executor.
+     * Processing will not begin until {@link #start()} is called.
+     *
+     * @param cache A Cache to use for persisting responses to disk
+     * @param network A Network interface for performing HTTP requests
+     * @param networkExecutor Executor to perform the network phase of requests on
+     * @param maxRequestsPerHost Maximum number of requests in flight to a single host
+     * @see #RequestQueue(Cache, Network, Executor, int, ResponseDelivery)
+     */
+    public RequestQueue(
+            Cache cache, Network network, Executor networkExecutor, int maxRequestsPerHost) {
+        this(
+                cache,
+                network,
+                networkExecutor,
+                maxRequestsPerHost,
+                new ExecutorDelivery(new Handler(Looper.getMainLooper())));
     }
 
     /**
@@ -183,6 +256,18 @@ public class RequestQueue {
             mDispatchers[i] = networkDispatcher;
             networkDispatcher.start();
         }
+
+        if (mNetworkExecutor != null) {
+            mExecutorDispatcher =
+                    new ExecutorNetworkDispatcher(
+                            mNetworkQueue,
+                            mNetwork,
+                            mCache,
+                            mDelivery,
+                            mNetworkExecutor,
+                            mMaxRequestsPerHost);
+            mExecutorDispatcher.start();
+        }
     }
 
     /** Stops the cache and network dispatchers. */
@@ -195,6 +280,10 @@ public class RequestQueue {
                 mDispatcher.quit();
             }
         }
+        if (mExecutorDispatcher != null) {
+            mExecutorDispatcher.quit();
+            mExecutorDispatcher = null;
+        }
     }
 
     /** Gets a sequence number. */
@@ -272,12 +361,35 @@ public class RequestQueue {
     <T> void beginRequest(Request<T> request) {
         // If the request is uncacheable, skip the cache queue and go straight to the network.
         if (!request.shouldCache()) {
-            sendRequestOverNetwork(request);
+            if (!maybeCoalesce(request)) {
+                sendRequestOverNetwork(request);
+            }
         } else {
             mCacheQueue.add(request);
         }
     }
 
+    /**
+     * Enables coalescing of identical requests which are not cached. While a request is in flight,
+     * identical requests as defined by the policy are held back and receive its response instead
+     * of being sent over the network themselves. Disabled by default.
+     *
+     * @param policy defines which requests are identical, or null to disable coalescing
+     */
+    public void setCoalescingPolicy(@Nullable CoalescingPolicy policy) {
+        mRequestCoalescer = policy != null ? new RequestCoalescer(this, policy) : null;
+    }
+
+    /**
+     * Puts the request on hold if an identical request is in flight.
+     *
+     * @return whether the request was put on hold. If false, it should be sent over the network.
+     */
+    <T> boolean maybeCoalesce(Request<T> request) {
+        RequestCoalescer coalescer = mRequestCoalescer;
+        return coalescer != null && coalescer.maybeAddToWaitingRequests(request);
+    }
+
     /**
      * Called from {@link Request#finish(String)}, indicating that processing of the given request
      * has finished.
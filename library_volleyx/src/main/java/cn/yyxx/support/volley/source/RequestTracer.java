@@ -0,0 +1,214 @@
+package cn.yyxx.support.volley.source;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Always-on tracing of request markers, cheap enough for release builds.
+ *
+ * <p>Where {@link VolleyLog.MarkerLog} allocates an object per marker and needs a finalizer to
+ * catch leaked requests, a traced request gets a fixed ring of primitive timestamps, thread IDs and
+ * marker IDs when it is created, and recording a marker allocates nothing. Once a request finishes,
+ * its trace is kept in a ring of the most recent traces, which can be written out in the Chrome
+ * trace event format and opened in {@code chrome://tracing} or Perfetto. Requests which never
+ * finish are simply never dumped.
+ *
+ * <p>Tracing only applies to requests created after {@link #setEnabled(boolean)} was called.
+ */
+public final class RequestTracer {
+
+    /** Number of markers kept per request; older markers are overwritten. Power of two. */
+    static final int MARKERS_PER_REQUEST = 32;
+
+    /** Number of finished requests kept for dumping. Power of two. */
+    static final int MAX_TRACES = 256;
+
+    private static volatile boolean sEnabled = false;
+
+    /** Finished traces, overwritten in order. */
+    private static final AtomicReferenceArray<Trace> sTraces =
+            new AtomicReferenceArray<>(MAX_TRACES);
+
+    private static final AtomicLong sTraceCount = new AtomicLong();
+
+    /** Marker names by ID, and IDs by name. Names are only ever added. */
+    private static final ConcurrentHashMap<String, Integer> sMarkerIds = new ConcurrentHashMap<>();
+
+    private static volatile String[] sMarkerNames = new String[16];
+
+    private static int sMarkerCount = 0;
+
+    private RequestTracer() {}
+
+    /** Turns tracing of newly created requests on or off. */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /** Returns whether newly created requests are traced. */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /** Discards the traces of finished requests. */
+    public static void clear() {
+        for (int i = 0; i < MAX_TRACES; i++) {
+            sTraces.set(i, null);
+        }
+    }
+
+    /** Returns the traces of the most recently finished requests in the Chrome trace format. */
+    public static String dumpChromeTrace() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeChromeTrace(writer);
+        } catch (IOException e) {
+            // Not thrown by StringWriter.
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the traces of the most recently finished requests in the Chrome trace format. Each
+     * request is a complete event from its first to its last marker, with an instant event per
+     * marker. Timestamps are in microseconds of {@link System#nanoTime()}.
+     */
+    public static void writeChromeTrace(Writer writer) throws IOException {
+        String[] names = sMarkerNames;
+        writer.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (int i = 0; i < MAX_TRACES; i++) {
+            Trace trace = sTraces.get(i);
+            if (trace != null && trace.write(writer, names, first)) {
+                first = false;
+            }
+        }
+        writer.write("],\"displayTimeUnit\":\"ms\"}");
+    }
+
+    /** Returns the trace for a new request, or null if tracing is disabled. */
+    static Trace newTrace() {
+        return sEnabled ? new Trace() : null;
+    }
+
+    static int getMarkerId(String name) {
+        Integer id = sMarkerIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (sMarkerIds) {
+            id = sMarkerIds.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] names = sMarkerNames;
+            if (sMarkerCount == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[sMarkerCount] = name;
+            sMarkerNames = names;
+            sMarkerIds.put(name, sMarkerCount);
+            return sMarkerCount++;
+        }
+    }
+
+    /** Markers of a single request. */
+    static final class Trace {
+        private final long[] mTimesNanos = new long[MARKERS_PER_REQUEST];
+        private final long[] mThreadIds = new long[MARKERS_PER_REQUEST];
+        private final int[] mMarkerIds = new int[MARKERS_PER_REQUEST];
+        private final AtomicInteger mCount = new AtomicInteger();
+        private volatile String mUrl;
+        private volatile int mSequence;
+        private volatile boolean mFinished = false;
+
+        /** Records a marker on the calling thread. */
+        void add(String name) {
+            int index = mCount.getAndIncrement() & (MARKERS_PER_REQUEST - 1);
+            mMarkerIds[index] = getMarkerId(name);
+            mThreadIds[index] = Thread.currentThread().getId();
+            mTimesNanos[index] = System.nanoTime();
+        }
+
+        /** Records the final marker and keeps the trace for dumping. */
+        void finish(String name, String url, int sequence) {
+            add(name);
+            if (mFinished) {
+                return;
+            }
+            mFinished = true;
+            mUrl = url;
+            mSequence = sequence;
+            long slot = sTraceCount.getAndIncrement() & (MAX_TRACES - 1);
+            sTraces.set((int) slot, this);
+        }
+
+        /** Writes the events of this trace, returning whether anything was written. */
+        boolean write(Writer writer, String[] names, boolean first) throws IOException {
+            int count = mCount.get();
+            int size = Math.min(count, MARKERS_PER_REQUEST);
+            if (size == 0) {
+                return false;
+            }
+            int start = count - size;
+            long begin = mTimesNanos[start & (MARKERS_PER_REQUEST - 1)];
+            long end = mTimesNanos[(count - 1) & (MARKERS_PER_REQUEST - 1)];
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write("{\"name\":");
+            writeString(writer, mUrl);
+            writer.write(",\"cat\":\"request\",\"ph\":\"X\",\"pid\":0,\"tid\":");
+            writer.write(Long.toString(mThreadIds[start & (MARKERS_PER_REQUEST - 1)]));
+            writer.write(",\"ts\":");
+            writer.write(Long.toString(begin / 1000));
+            writer.write(",\"dur\":");
+            writer.write(Long.toString((end - begin) / 1000));
+            writer.write(",\"args\":{\"sequence\":");
+            writer.write(Integer.toString(mSequence));
+            writer.write("}}");
+            for (int i = start; i < count; i++) {
+                int index = i & (MARKERS_PER_REQUEST - 1);
+                int markerId = mMarkerIds[index];
+                writer.write(",{\"name\":");
+                writeString(writer, markerId < names.length ? names[markerId] : null);
+                writer.write(",\"cat\":\"marker\",\"ph\":\"i\",\"s\":\"t\",\"pid\":0,\"tid\":");
+                writer.write(Long.toString(mThreadIds[index]));
+                writer.write(",\"ts\":");
+                writer.write(Long.toString(mTimesNanos[index] / 1000));
+                writer.write(",\"args\":{\"sequence\":");
+                writer.write(Integer.toString(mSequence));
+                writer.write("}}");
+            }
+            return true;
+        }
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -28,6 +28,10 @@ import java.util.Locale;
  *
  * <p>to see Volley logs call:<br>
  * {@code <android-sdk>/platform-tools/adb shell setprop log.tag.Volley VERBOSE}
+ *
+ * <p>Messages below the {@link #setMinPriority minimum priority} are dropped before they are
+ * formatted, and the calling method is only looked up if {@link #setIncludeCaller asked for}.
+ * Messages are written to a {@link LogSink}, logcat by default.
  */
 public class VolleyLog {
     public static String TAG = "Volley";
@@ -40,6 +44,31 @@ public class VolleyLog {
      */
     private static final String CLASS_NAME = VolleyLog.class.getName();
 
+    /** Sink that writes to logcat. */
+    public static final LogSink LOGCAT_SINK =
+            new LogSink() {
+                @Override
+                public boolean isLoggable(int priority, String tag) {
+                    return true;
+                }
+
+                @Override
+                public void log(int priority, String tag, String message, Throwable tr) {
+                    if (tr != null) {
+                        message = message + '\n' + Log.getStackTraceString(tr);
+                    }
+                    Log.println(priority, tag, message);
+                }
+            };
+
+    private static volatile LogSink sSink = LOGCAT_SINK;
+
+    /** Messages below this priority are dropped before they are formatted. */
+    private static volatile int sMinPriority = DEBUG ? Log.VERBOSE : Log.INFO;
+
+    /** Whether messages are prefixed with the calling class and method, which walks the stack. */
+    private static volatile boolean sIncludeCaller = DEBUG;
+
     /**
      * Customize the log tag for your application, so that other apps using Volley don't mix their
      * logs with yours. <br>
@@ -52,41 +81,93 @@ public class VolleyLog {
 
         // Reinitialize the DEBUG "constant"
         DEBUG = Log.isLoggable(TAG, Log.VERBOSE);
+        sMinPriority = DEBUG ? Log.VERBOSE : Log.INFO;
+        sIncludeCaller = DEBUG;
+    }
+
+    /**
+     * Sets where log messages go, for Volley as well as for other libraries sharing this sink.
+     * Defaults to {@link #LOGCAT_SINK}.
+     */
+    public static void setSink(LogSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("sink cannot be null");
+        }
+        sSink = sink;
+    }
+
+    /** Returns where log messages go. */
+    public static LogSink getSink() {
+        return sSink;
+    }
+
+    /**
+     * Sets the lowest priority, e.g. {@link Log#DEBUG}, of messages that are logged. Messages below
+     * it are dropped without being formatted. Defaults to {@link Log#VERBOSE} if {@link #DEBUG} is
+     * set and {@link Log#INFO} otherwise.
+     */
+    public static void setMinPriority(int priority) {
+        sMinPriority = priority;
+    }
+
+    /**
+     * Sets whether messages are prefixed with the calling class and method. Finding them walks
+     * the stack of the calling thread, so this defaults to the value of {@link #DEBUG}.
+     */
+    public static void setIncludeCaller(boolean includeCaller) {
+        sIncludeCaller = includeCaller;
+    }
+
+    /** Returns whether messages of the given priority are logged. */
+    public static boolean isLoggable(int priority) {
+        return priority >= sMinPriority && sSink.isLoggable(priority, TAG);
     }
 
     public static void v(String format, Object... args) {
         if (DEBUG) {
-            Log.v(TAG, buildMessage(format, args));
+            log(Log.VERBOSE, null, format, args);
         }
     }
 
     public static void d(String format, Object... args) {
-        Log.d(TAG, buildMessage(format, args));
+        log(Log.DEBUG, null, format, args);
     }
 
     public static void e(String format, Object... args) {
-        Log.e(TAG, buildMessage(format, args));
+        log(Log.ERROR, null, format, args);
     }
 
     public static void e(Throwable tr, String format, Object... args) {
-        Log.e(TAG, buildMessage(format, args), tr);
+        log(Log.ERROR, tr, format, args);
     }
 
     public static void wtf(String format, Object... args) {
-        Log.wtf(TAG, buildMessage(format, args));
+        log(Log.ASSERT, null, format, args);
     }
 
     public static void wtf(Throwable tr, String format, Object... args) {
-        Log.wtf(TAG, buildMessage(format, args), tr);
+        log(Log.ASSERT, tr, format, args);
+    }
+
+    private static void log(int priority, Throwable tr, String format, Object... args) {
+        if (!isLoggable(priority)) {
+            return;
+        }
+        sSink.log(priority, TAG, buildMessage(format, args), tr);
     }
 
     /**
-     * Formats the caller's provided message and prepends useful info like calling thread ID and
-     * method name.
+     * Formats the caller's provided message and prepends useful info like calling thread ID and,
+     * if enabled, method name.
      */
     private static String buildMessage(String format, Object... args) {
-        String msg = (args == null) ? format : String.format(Locale.US, format, args);
-        StackTraceElement[] trace = new Throwable().fillInStackTrace().getStackTrace();
+        String msg =
+                (args == null || args.length == 0) ? format : String.format(Locale.US, format, args);
+        long threadId = Thread.currentThread().getId();
+        if (!sIncludeCaller) {
+            return "[" + threadId + "] " + msg;
+        }
+        StackTraceElement[] trace = new Throwable().getStackTrace();
 
         String caller = "<unknown>";
         // Walk up the stack looking for the first caller outside of VolleyLog.
@@ -102,7 +183,7 @@ public class VolleyLog {
                 break;
             }
         }
-        return String.format(Locale.US, "[%d] %s: %s", Thread.currentThread().getId(), caller, msg);
+        return "[" + threadId + "] " + caller + ": " + msg;
     }
 
     /** A simple event log with records containing a name, thread ID, and timestamp. */
@@ -49,7 +49,9 @@ import cn.yyxx.support.volley.source.Request;
 import cn.yyxx.support.volley.source.RequestTask;
 import cn.yyxx.support.volley.source.VolleyLog;
 import cn.yyxx.support.volley.source.toolbox.AsyncHttpStack;
+import cn.yyxx.support.volley.source.toolbox.BucketedByteArrayPool;
 import cn.yyxx.support.volley.source.toolbox.ByteArrayPool;
+import cn.yyxx.support.volley.source.toolbox.HttpContentEncoding;
 import cn.yyxx.support.volley.source.toolbox.HttpHeaderParser;
 import cn.yyxx.support.volley.source.toolbox.HttpResponse;
 import cn.yyxx.support.volley.source.toolbox.PoolingByteArrayOutputStream;
@@ -240,7 +242,8 @@ public class CronetHttpStack extends AsyncHttpStack {
                 byte[] postBody = request.getPostBody();
                 if (postBody != null) {
                     requestParameters.setHttpMethod("POST");
-                    addBodyIfExists(requestParameters, request.getPostBodyContentType(), postBody);
+                    addBodyIfExists(
+                            requestParameters, request, request.getPostBodyContentType(), postBody);
                 } else {
                     requestParameters.setHttpMethod("GET");
                 }
@@ -255,11 +258,13 @@ public class CronetHttpStack extends AsyncHttpStack {
                 break;
             case Request.Method.POST:
                 requestParameters.setHttpMethod("POST");
-                addBodyIfExists(requestParameters, request.getBodyContentType(), request.getBody());
+                addBodyIfExists(
+                        requestParameters, request, request.getBodyContentType(), request.getBody());
                 break;
             case Request.Method.PUT:
                 requestParameters.setHttpMethod("PUT");
-                addBodyIfExists(requestParameters, request.getBodyContentType(), request.getBody());
+                addBodyIfExists(
+                        requestParameters, request, request.getBodyContentType(), request.getBody());
                 break;
             case Request.Method.HEAD:
                 requestParameters.setHttpMethod("HEAD");
@@ -272,7 +277,8 @@ public class CronetHttpStack extends AsyncHttpStack {
                 break;
             case Request.Method.PATCH:
                 requestParameters.setHttpMethod("PATCH");
-                addBodyIfExists(requestParameters, request.getBodyContentType(), request.getBody());
+                addBodyIfExists(
+                        requestParameters, request, request.getBodyContentType(), request.getBody());
                 break;
             default:
                 throw new IllegalStateException("Unknown method type.");
@@ -302,9 +308,23 @@ public class CronetHttpStack extends AsyncHttpStack {
      */
     private void addBodyIfExists(
             CurlLoggedRequestParameters requestParameters,
+            Request<?> request,
             String contentType,
             @Nullable byte[] body) {
+        if (body != null && request.shouldGzipBody()) {
+            try {
+                body = HttpContentEncoding.gzip(body, mPool);
+            } catch (IOException e) {
+                // Not thrown when writing to memory.
+                throw new IllegalStateException(e);
+            }
+            requestParameters.getHeaders().put(
+                    HttpContentEncoding.HEADER_CONTENT_ENCODING, HttpContentEncoding.ENCODING_GZIP);
+        }
         requestParameters.setBody(contentType, body);
+        if (body != null) {
+            request.setNetworkBytesSent(body.length);
+        }
     }
 
     /**
@@ -528,7 +548,7 @@ public class CronetHttpStack extends AsyncHttpStack {
                 };
             }
             if (mPool == null) {
-                mPool = new ByteArrayPool(DEFAULT_POOL_SIZE);
+                mPool = new BucketedByteArrayPool(DEFAULT_POOL_SIZE);
             }
             if (mCurlCommandLogger == null) {
                 mCurlCommandLogger =
@@ -0,0 +1,201 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import cn.yyxx.support.volley.source.AsyncCache;
+import cn.yyxx.support.volley.source.Cache;
+
+/**
+ * AsyncCache implementation that stores entries in the same on-disk format as {@link
+ * DiskBasedCache}, so existing cache directories stay readable.
+ *
+ * <p>All file I/O runs on an executor owned by the cache rather than on the blocking executor of
+ * the {@link cn.yyxx.support.volley.source.AsyncRequestQueue}, which stays free for parsing
+ * responses. Since entries are stored with {@link ConcurrentDiskBasedCache}, reads and writes for
+ * different keys proceed in parallel on the I/O threads. Callbacks are invoked on an I/O thread.
+ */
+public class AsyncDiskBasedCache extends AsyncCache {
+
+    /** Default number of threads performing cache I/O. */
+    private static final int DEFAULT_IO_THREAD_POOL_SIZE = 2;
+
+    /** Seconds an idle I/O thread is kept alive. */
+    private static final int IO_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    /** The cache performing the actual reads and writes. */
+    private final Cache mDiskCache;
+
+    /** Executor the cache operations run on. */
+    private final ExecutorService mIoExecutor;
+
+    /**
+     * Constructs an instance of the AsyncDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
+     * @param ioExecutor The executor to perform cache I/O on.
+     */
+    public AsyncDiskBasedCache(
+            FileSupplier rootDirectorySupplier,
+            int maxCacheSizeInBytes,
+            ExecutorService ioExecutor) {
+        mDiskCache = new ConcurrentDiskBasedCache(rootDirectorySupplier, maxCacheSizeInBytes);
+        mIoExecutor = ioExecutor;
+    }
+
+    /**
+     * Constructs an instance of the AsyncDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
+     */
+    public AsyncDiskBasedCache(FileSupplier rootDirectorySupplier, int maxCacheSizeInBytes) {
+        this(rootDirectorySupplier, maxCacheSizeInBytes, createDefaultIoExecutor());
+    }
+
+    /**
+     * Constructs an instance of the AsyncDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectory The root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
+     */
+    public AsyncDiskBasedCache(final File rootDirectory, int maxCacheSizeInBytes) {
+        this(
+                new FileSupplier() {
+                    @Override
+                    public File get() {
+                        return rootDirectory;
+                    }
+                },
+                maxCacheSizeInBytes);
+    }
+
+    /**
+     * Constructs an instance of the AsyncDiskBasedCache at the specified directory using the
+     * default maximum cache size of 5MB.
+     *
+     * @param rootDirectory The root directory of the cache.
+     */
+    public AsyncDiskBasedCache(final File rootDirectory) {
+        this(
+                new FileSupplier() {
+                    @Override
+                    public File get() {
+                        return rootDirectory;
+                    }
+                });
+    }
+
+    /**
+     * Constructs an instance of the AsyncDiskBasedCache at the specified directory using the
+     * default maximum cache size of 5MB.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     */
+    public AsyncDiskBasedCache(FileSupplier rootDirectorySupplier) {
+        mDiskCache = new ConcurrentDiskBasedCache(rootDirectorySupplier);
+        mIoExecutor = createDefaultIoExecutor();
+    }
+
+    @Override
+    public void get(final String key, final OnGetCompleteCallback callback) {
+        mIoExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onGetComplete(mDiskCache.get(key));
+                    }
+                });
+    }
+
+    @Override
+    public void put(
+            final String key, final Cache.Entry entry, final OnWriteCompleteCallback callback) {
+        mIoExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskCache.put(key, entry);
+                        callback.onWriteComplete();
+                    }
+                });
+    }
+
+    @Override
+    public void clear(final OnWriteCompleteCallback callback) {
+        mIoExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskCache.clear();
+                        callback.onWriteComplete();
+                    }
+                });
+    }
+
+    @Override
+    public void initialize(final OnWriteCompleteCallback callback) {
+        mIoExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskCache.initialize();
+                        callback.onWriteComplete();
+                    }
+                });
+    }
+
+    @Override
+    public void invalidate(
+            final String key, final boolean fullExpire, final OnWriteCompleteCallback callback) {
+        mIoExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskCache.invalidate(key, fullExpire);
+                        callback.onWriteComplete();
+                    }
+                });
+    }
+
+    @Override
+    public void remove(final String key, final OnWriteCompleteCallback callback) {
+        mIoExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mDiskCache.remove(key);
+                        callback.onWriteComplete();
+                    }
+                });
+    }
+
+    private static ExecutorService createDefaultIoExecutor() {
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(
+                        /* corePoolSize= */ DEFAULT_IO_THREAD_POOL_SIZE,
+                        /* maximumPoolSize= */ DEFAULT_IO_THREAD_POOL_SIZE,
+                        /* keepAliveTime= */ IO_THREAD_KEEP_ALIVE_SECONDS,
+                        /* unit= */ TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(@NonNull Runnable runnable) {
+                                Thread t = Executors.defaultThreadFactory().newThread(runnable);
+                                t.setName("Volley-CacheIoExecutor");
+                                return t;
+                            }
+                        });
+        // Core threads are only needed while there is cache work to do.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
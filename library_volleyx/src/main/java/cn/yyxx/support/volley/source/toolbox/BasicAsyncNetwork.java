@@ -239,6 +239,30 @@ public class BasicAsyncNetwork extends AsyncNetwork {
 
         @Override
         public void run() {
+            if (request instanceof StreamingRequest && statusCode >= 200 && statusCode <= 299) {
+                // Let the request parse the body as it is read instead of buffering it.
+                NetworkResponse streamedResponse;
+                try {
+                    streamedResponse =
+                            ((StreamingRequest<T>) request)
+                                    .consumeContent(
+                                            inputStream,
+                                            statusCode,
+                                            responseHeaders,
+                                            requestStartMs,
+                                            mPool);
+                } catch (IOException e) {
+                    onRequestFailed(request, callback, e, requestStartMs, httpResponse, null);
+                    return;
+                } catch (VolleyError e) {
+                    callback.onError(e);
+                    return;
+                }
+                logSlowRequests(
+                        streamedResponse.networkTimeMs, request, streamedResponse.data, statusCode);
+                callback.onSuccess(streamedResponse);
+                return;
+            }
             byte[] finalResponseContents;
             try {
                 finalResponseContents =
@@ -288,7 +312,7 @@ public class BasicAsyncNetwork extends AsyncNetwork {
          */
         public BasicAsyncNetwork build() {
             if (mPool == null) {
-                mPool = new ByteArrayPool(DEFAULT_POOL_SIZE);
+                mPool = new BucketedByteArrayPool(DEFAULT_POOL_SIZE);
             }
             return new BasicAsyncNetwork(mAsyncStack, mPool);
         }
@@ -55,7 +55,7 @@ public class BasicNetwork implements Network {
     public BasicNetwork(HttpStack httpStack) {
         // If a pool isn't passed in, then build a small default pool that will give us a lot of
         // benefit and not use too much memory.
-        this(httpStack, new ByteArrayPool(DEFAULT_POOL_SIZE));
+        this(httpStack, new BucketedByteArrayPool(DEFAULT_POOL_SIZE));
     }
 
     /**
@@ -71,11 +71,12 @@ public class BasicNetwork implements Network {
         mPool = pool;
     }
 
-    /** @param httpStack HTTP stack to be used */
+    /**
+     * @param httpStack HTTP stack to be used. A {@link HurlStack} shares its buffer pool with the
+     *     network.
+     */
     public BasicNetwork(BaseHttpStack httpStack) {
-        // If a pool isn't passed in, then build a small default pool that will give us a lot of
-        // benefit and not use too much memory.
-        this(httpStack, new ByteArrayPool(DEFAULT_POOL_SIZE));
+        this(httpStack, defaultPool(httpStack));
     }
 
     /**
@@ -115,6 +116,26 @@ public class BasicNetwork implements Network {
 
                 // Some responses such as 204s do not have content.  We must check.
                 InputStream inputStream = httpResponse.getContent();
+                if (inputStream != null
+                        && request instanceof StreamingRequest
+                        && statusCode >= 200
+                        && statusCode <= 299) {
+                    // Let the request parse the body as it is read instead of buffering it.
+                    NetworkResponse streamedResponse =
+                            ((StreamingRequest<?>) request)
+                                    .consumeContent(
+                                            inputStream,
+                                            statusCode,
+                                            responseHeaders,
+                                            requestStart,
+                                            mPool);
+                    NetworkUtility.logSlowRequests(
+                            streamedResponse.networkTimeMs,
+                            request,
+                            streamedResponse.data,
+                            statusCode);
+                    return streamedResponse;
+                }
                 if (inputStream != null) {
                     responseContents =
                             NetworkUtility.inputStreamToBytes(
@@ -148,6 +169,15 @@ public class BasicNetwork implements Network {
         }
     }
 
+    private static ByteArrayPool defaultPool(BaseHttpStack httpStack) {
+        if (httpStack instanceof HurlStack) {
+            return ((HurlStack) httpStack).getByteArrayPool();
+        }
+        // If a pool isn't passed in, then build a small default pool that will give us a lot of
+        // benefit and not use too much memory.
+        return new BucketedByteArrayPool(DEFAULT_POOL_SIZE);
+    }
+
     /**
      * Converts Headers[] to Map&lt;String, String&gt;.
      *
@@ -0,0 +1,135 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link ByteArrayPool} that files buffers into power-of-two size classes instead of keeping
+ * them in sorted lists behind a single lock.
+ *
+ * <p>Each size class holds a small fixed number of slots which are claimed and released with
+ * atomic operations, so {@link #getBuf} and {@link #returnBuf} take constant time and never block,
+ * even with several network dispatchers reading responses at once. A buffer of length {@code n}
+ * is filed under the largest power of two not above {@code n}, and a request for {@code len} bytes
+ * is served from the smallest power of two not below {@code len}, so every pooled buffer handed
+ * out is at least as large as requested. Newly allocated buffers are rounded up to their size
+ * class so they can be reused for any request in it. The price is memory: a buffer allocated for
+ * a length just above a power of two is almost twice as large as requested, so the buffers in use
+ * can take up to twice the memory that exact-size allocation would.
+ *
+ * <p>As with {@link ByteArrayPool}, the total size of the pooled buffers never exceeds the size
+ * limit. Instead of discarding the least recently used buffers, a returned buffer that doesn't fit
+ * into the remaining budget or into a free slot is left to the garbage collector.
+ */
+public class BucketedByteArrayPool extends ByteArrayPool {
+
+    /** Number of buffers kept per size class. */
+    @VisibleForTesting
+    static final int SLOTS_PER_SIZE_CLASS = 8;
+
+    /** Slots of pooled buffers, indexed by the base two logarithm of their size class. */
+    private final AtomicReferenceArray<byte[]>[] mSizeClasses;
+
+    /** The total size of the buffers in the pool */
+    private final AtomicInteger mCurrentSize = new AtomicInteger();
+
+    /**
+     * The maximum aggregate size of the buffers in the pool. Returned buffers are discarded to stay
+     * under this limit.
+     */
+    private final int mSizeLimit;
+
+    /** @param sizeLimit the maximum size of the pool, in bytes */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BucketedByteArrayPool(int sizeLimit) {
+        super(sizeLimit);
+        mSizeLimit = sizeLimit;
+        int classCount = sizeLimit > 0 ? floorLog2(sizeLimit) + 1 : 0;
+        mSizeClasses = new AtomicReferenceArray[classCount];
+        for (int i = 0; i < classCount; i++) {
+            mSizeClasses[i] = new AtomicReferenceArray<>(SLOTS_PER_SIZE_CLASS);
+        }
+    }
+
+    /**
+     * Returns a buffer from the pool if one is available in the requested size class or the one
+     * above it, or allocates a new one if a pooled one is not available.
+     *
+     * @param len the minimum size, in bytes, of the requested buffer. The returned buffer may be
+     *     larger.
+     * @return a byte[] buffer is always returned.
+     */
+    @Override
+    public byte[] getBuf(int len) {
+        int sizeClass = ceilLog2(Math.max(len, 1));
+        if (sizeClass >= mSizeClasses.length) {
+            // Too large to ever be pooled, so don't round it up.
+            return new byte[len];
+        }
+        byte[] buf = poll(sizeClass);
+        if (buf == null && sizeClass + 1 < mSizeClasses.length) {
+            buf = poll(sizeClass + 1);
+        }
+        return buf != null ? buf : new byte[1 << sizeClass];
+    }
+
+    /**
+     * Returns a buffer to the pool, discarding it if the pool would exceed its allotted size or
+     * its size class is full.
+     *
+     * @param buf the buffer to return to the pool.
+     */
+    @Override
+    public void returnBuf(byte[] buf) {
+        if (buf == null || buf.length == 0 || buf.length > mSizeLimit) {
+            return;
+        }
+        int current;
+        do {
+            current = mCurrentSize.get();
+            if (current + buf.length > mSizeLimit) {
+                return;
+            }
+        } while (!mCurrentSize.compareAndSet(current, current + buf.length));
+
+        AtomicReferenceArray<byte[]> slots = mSizeClasses[floorLog2(buf.length)];
+        for (int i = 0; i < SLOTS_PER_SIZE_CLASS; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buf)) {
+                return;
+            }
+        }
+        // No free slot; release the reserved bytes.
+        mCurrentSize.addAndGet(-buf.length);
+    }
+
+    /** Returns the total size of the buffers currently in the pool. */
+    @VisibleForTesting
+    int getCurrentSize() {
+        return mCurrentSize.get();
+    }
+
+    /** Takes a buffer out of the given size class, or returns null if it is empty. */
+    private byte[] poll(int sizeClass) {
+        AtomicReferenceArray<byte[]> slots = mSizeClasses[sizeClass];
+        for (int i = 0; i < SLOTS_PER_SIZE_CLASS; i++) {
+            if (slots.get(i) != null) {
+                byte[] buf = slots.getAndSet(i, null);
+                if (buf != null) {
+                    mCurrentSize.addAndGet(-buf.length);
+                    return buf;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int floorLog2(int value) {
+        return 31 - Integer.numberOfLeadingZeros(value);
+    }
+
+    private static int ceilLog2(int value) {
+        return value == 1 ? 0 : 32 - Integer.numberOfLeadingZeros(value - 1);
+    }
+}
@@ -0,0 +1,575 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.yyxx.support.volley.source.AuthFailureError;
+import cn.yyxx.support.volley.source.DefaultRetryPolicy;
+import cn.yyxx.support.volley.source.NetworkError;
+import cn.yyxx.support.volley.source.NetworkResponse;
+import cn.yyxx.support.volley.source.Request;
+import cn.yyxx.support.volley.source.Response;
+import cn.yyxx.support.volley.source.VolleyError;
+import cn.yyxx.support.volley.source.VolleyLog;
+
+/**
+ * Downloads a large file over several concurrent connections, each fetching one byte range.
+ *
+ * <p>The size of the file is first requested with a {@code HEAD} request. If the server accepts
+ * byte ranges, the file is preallocated and split into segments which are fetched in parallel on
+ * the given executor, each writing directly at its own position in the file. Since every segment
+ * lands in place, nothing needs to be merged or copied once they are all done. A segment whose
+ * connection fails is retried on its own from the last byte it wrote, without affecting the other
+ * segments. If the server doesn't accept byte ranges or doesn't report the size, the file is
+ * downloaded over a single connection, which is resumed with an open-ended range when it fails
+ * and the server sent an ETag.
+ *
+ * <p>The executor should allow as many concurrent tasks as there are segments, e.g. the executor
+ * given to an {@link cn.yyxx.support.volley.source.AsyncRequestQueue} for blocking work.
+ */
+public class ChunkedFileDownloader {
+
+    /** Default number of segments downloaded in parallel. */
+    private static final int DEFAULT_SEGMENT_COUNT = 4;
+
+    /** Default number of times a failed segment is retried. */
+    private static final int DEFAULT_SEGMENT_RETRIES = 3;
+
+    /** Files are not split into segments smaller than this. */
+    private static final long MIN_SEGMENT_BYTES = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Minimum number of bytes downloaded between two progress updates. */
+    private static final int PROGRESS_INTERVAL_BYTES = 64 * 1024;
+
+    private final BaseHttpStack mHttpStack;
+
+    private final Executor mExecutor;
+
+    private final Executor mDeliveryExecutor;
+
+    private final int mSegmentCount;
+
+    private final int mSegmentRetries;
+
+    private final int mTimeoutMs;
+
+    private ChunkedFileDownloader(
+            BaseHttpStack httpStack,
+            Executor executor,
+            Executor deliveryExecutor,
+            int segmentCount,
+            int segmentRetries,
+            int timeoutMs) {
+        mHttpStack = httpStack;
+        mExecutor = executor;
+        mDeliveryExecutor = deliveryExecutor;
+        mSegmentCount = segmentCount;
+        mSegmentRetries = segmentRetries;
+        mTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * Starts downloading the given URL into the target file. The file is replaced once the
+     * download is complete.
+     *
+     * @param url URL to download
+     * @param targetFile file to store the download in
+     * @param listener Listener to receive the completed file
+     * @param errorListener Listener to receive the error if the download fails
+     * @param progressListener Listener to receive progress, or null
+     * @return the download, which may be used to cancel it
+     */
+    public Download download(
+            String url,
+            File targetFile,
+            Response.Listener<File> listener,
+            Response.ErrorListener errorListener,
+            @Nullable FileDownloadRequest.ProgressListener progressListener) {
+        final Download download =
+                new Download(url, targetFile, listener, errorListener, progressListener);
+        mExecutor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        download.start();
+                    }
+                });
+        return download;
+    }
+
+    /**
+     * A download in progress. Once it is canceled the partial file is deleted and the target file
+     * is left untouched.
+     */
+    public class Download {
+        private final String mUrl;
+        private final File mTargetFile;
+        private final File mPartFile;
+        private final Response.Listener<File> mListener;
+        private final Response.ErrorListener mErrorListener;
+        @Nullable private final FileDownloadRequest.ProgressListener mProgressListener;
+
+        private final AtomicBoolean mFinished = new AtomicBoolean();
+        private final AtomicInteger mRemainingSegments = new AtomicInteger();
+        private final AtomicLong mDownloadedBytes = new AtomicLong();
+        private volatile boolean mCanceled = false;
+        private volatile long mTotalBytes = -1;
+        @Nullable private String mETag;
+        private RandomAccessFile mFile;
+
+        Download(
+                String url,
+                File targetFile,
+                Response.Listener<File> listener,
+                Response.ErrorListener errorListener,
+                @Nullable FileDownloadRequest.ProgressListener progressListener) {
+            mUrl = url;
+            mTargetFile = targetFile;
+            mPartFile = new File(targetFile.getPath() + ".part");
+            mListener = listener;
+            mErrorListener = errorListener;
+            mProgressListener = progressListener;
+        }
+
+        /** Cancels the download. No listener is invoked afterwards. */
+        public void cancel() {
+            mCanceled = true;
+        }
+
+        public boolean isCanceled() {
+            return mCanceled;
+        }
+
+        /** Probes the file, then schedules the segments. */
+        void start() {
+            try {
+                probe();
+                mFile = new RandomAccessFile(mPartFile, "rw");
+                if (mTotalBytes < 0) {
+                    mFile.setLength(0);
+                    mRemainingSegments.set(1);
+                    new Segment(0, -1).run();
+                    return;
+                }
+                mFile.setLength(mTotalBytes);
+                int segmentCount =
+                        (int)
+                                Math.max(
+                                        1,
+                                        Math.min(
+                                                mSegmentCount,
+                                                (mTotalBytes + MIN_SEGMENT_BYTES - 1)
+                                                        / MIN_SEGMENT_BYTES));
+                mRemainingSegments.set(segmentCount);
+                if (mTotalBytes == 0) {
+                    onSegmentComplete();
+                    return;
+                }
+                for (int i = segmentCount - 1; i >= 0; i--) {
+                    Segment segment =
+                            new Segment(
+                                    mTotalBytes * i / segmentCount,
+                                    mTotalBytes * (i + 1) / segmentCount - 1);
+                    if (i == 0) {
+                        // Run the first segment on this thread.
+                        segment.run();
+                    } else {
+                        mExecutor.execute(segment);
+                    }
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /** Requests the size of the file and whether ranges are supported. */
+        private void probe() throws IOException {
+            // The size must be that of the unencoded body the segments request.
+            HttpResponse response =
+                    execute(
+                            Request.Method.HEAD,
+                            Collections.singletonMap("Accept-Encoding", "identity"));
+            closeQuietly(response);
+            Map<String, String> headers = HttpHeaderParser.toHeaderMap(response.getHeaders());
+            if (response.getStatusCode() < 200 || response.getStatusCode() > 299) {
+                throw new IOException("Unexpected response code " + response.getStatusCode());
+            }
+            mETag = headers.get("ETag");
+            String contentLength = headers.get("Content-Length");
+            if (contentLength != null && "bytes".equalsIgnoreCase(headers.get("Accept-Ranges"))) {
+                try {
+                    mTotalBytes = Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    mTotalBytes = -1;
+                }
+            }
+        }
+
+        private HttpResponse execute(int method, @Nullable Map<String, String> headers)
+                throws IOException {
+            try {
+                return mHttpStack.executeRequest(
+                        new SegmentRequest(method, mUrl, headers, mTimeoutMs),
+                        Collections.<String, String>emptyMap());
+            } catch (AuthFailureError e) {
+                throw new IOException(e.toString());
+            }
+        }
+
+        private void onSegmentComplete() {
+            if (mRemainingSegments.decrementAndGet() != 0) {
+                return;
+            }
+            if (mCanceled) {
+                abandon();
+                return;
+            }
+            try {
+                mFile.close();
+                if (mTargetFile.exists() && !mTargetFile.delete()) {
+                    throw new IOException("Could not replace " + mTargetFile);
+                }
+                if (!mPartFile.renameTo(mTargetFile)) {
+                    throw new IOException("Could not move download to " + mTargetFile);
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            if (mFinished.compareAndSet(false, true)) {
+                mDeliveryExecutor.execute(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!mCanceled) {
+                                    mListener.onResponse(mTargetFile);
+                                }
+                            }
+                        });
+            }
+        }
+
+        private void fail(IOException e) {
+            if (!mFinished.compareAndSet(false, true)) {
+                return;
+            }
+            // The remaining segments stop once they see the download finished.
+            closeQuietly(mFile);
+            //noinspection ResultOfMethodCallIgnored
+            mPartFile.delete();
+            final VolleyError error = new NetworkError(e);
+            mDeliveryExecutor.execute(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!mCanceled) {
+                                mErrorListener.onErrorResponse(error);
+                            }
+                        }
+                    });
+        }
+
+        /** Deletes the partial file of a canceled download. */
+        private void abandon() {
+            if (!mFinished.compareAndSet(false, true)) {
+                return;
+            }
+            // The remaining segments stop once they see the download finished.
+            closeQuietly(mFile);
+            //noinspection ResultOfMethodCallIgnored
+            mPartFile.delete();
+        }
+
+        private void onBytesWritten(long count) {
+            final long downloaded = mDownloadedBytes.addAndGet(count);
+            final FileDownloadRequest.ProgressListener listener = mProgressListener;
+            if (listener == null
+                    || (downloaded / PROGRESS_INTERVAL_BYTES
+                                    == (downloaded - count) / PROGRESS_INTERVAL_BYTES
+                            && downloaded != mTotalBytes)) {
+                return;
+            }
+            mDeliveryExecutor.execute(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!mCanceled) {
+                                listener.onProgress(downloaded, mTotalBytes);
+                            }
+                        }
+                    });
+        }
+
+        /** One byte range of the file, from its next byte to write to its last byte. */
+        private class Segment implements Runnable {
+            private long mPosition;
+            /** Last byte of the segment, inclusive, or -1 if the length is unknown. */
+            private final long mEnd;
+
+            Segment(long start, long end) {
+                mPosition = start;
+                mEnd = end;
+            }
+
+            @Override
+            public void run() {
+                int attempt = 0;
+                while (true) {
+                    if (mCanceled) {
+                        abandon();
+                        return;
+                    }
+                    if (mFinished.get()) {
+                        return;
+                    }
+                    try {
+                        if (fetch()) {
+                            onSegmentComplete();
+                        } else if (mCanceled) {
+                            abandon();
+                        }
+                        return;
+                    } catch (IOException e) {
+                        if (!canRetry() || ++attempt > mSegmentRetries) {
+                            fail(e);
+                            return;
+                        }
+                        VolleyLog.d(
+                                "Retrying segment at %d of %s: %s", mPosition, mUrl, e.toString());
+                    }
+                }
+            }
+
+            /**
+             * Returns whether the segment can be fetched again from its position. Without an ETag
+             * a single connection can only start over if it has not written anything yet, as a
+             * range of a changed file could not be detected.
+             */
+            private boolean canRetry() {
+                return mEnd >= 0 || mETag != null || mPosition == 0;
+            }
+
+            /**
+             * Downloads the rest of the segment.
+             *
+             * @return true if the segment is complete, false if it stopped early because the
+             *     download was canceled or finished by another segment
+             */
+            private boolean fetch() throws IOException {
+                Map<String, String> headers = new HashMap<>();
+                // Byte ranges refer to the encoded body, so ask for an unencoded one.
+                headers.put("Accept-Encoding", "identity");
+                // A single connection resumes with an open-ended range after a failure.
+                boolean ranged = mEnd >= 0 || mPosition > 0;
+                if (ranged) {
+                    headers.put("Range", "bytes=" + mPosition + "-" + (mEnd >= 0 ? mEnd : ""));
+                    if (mETag != null) {
+                        headers.put("If-Range", mETag);
+                    }
+                }
+                HttpResponse response = execute(Request.Method.GET, headers);
+                try {
+                    int statusCode = response.getStatusCode();
+                    if (mEnd < 0 && ranged && statusCode == 200) {
+                        // The whole file was sent instead, so the single connection starts over.
+                        mDownloadedBytes.addAndGet(-mPosition);
+                        mPosition = 0;
+                        mFile.setLength(0);
+                    } else if (ranged) {
+                        if (statusCode != 206) {
+                            // The server ignored the range, most likely because the file changed.
+                            throw new IOException(
+                                    "Expected a partial response, got " + statusCode);
+                        }
+                        checkContentRange(response);
+                    } else if (statusCode < 200 || statusCode > 299) {
+                        throw new IOException("Unexpected response code " + statusCode);
+                    }
+                    InputStream in = response.getContent();
+                    if (in == null) {
+                        throw new IOException("No content");
+                    }
+                    FileChannel channel = mFile.getChannel();
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        if (mCanceled || mFinished.get()) {
+                            return false;
+                        }
+                        if (mEnd >= 0) {
+                            count = (int) Math.min(count, mEnd + 1 - mPosition);
+                        }
+                        byteBuffer.clear();
+                        byteBuffer.limit(count);
+                        while (byteBuffer.hasRemaining()) {
+                            mPosition += channel.write(byteBuffer, mPosition);
+                        }
+                        onBytesWritten(count);
+                        if (mEnd >= 0 && mPosition > mEnd) {
+                            return true;
+                        }
+                    }
+                    if (mEnd >= 0 && mPosition <= mEnd) {
+                        throw new IOException("Segment ended at " + mPosition + " of " + mEnd);
+                    }
+                    return true;
+                } finally {
+                    closeQuietly(response);
+                }
+            }
+
+            /** Fails the attempt unless the partial response starts at the next byte to write. */
+            private void checkContentRange(HttpResponse response) throws IOException {
+                String contentRange =
+                        HttpHeaderParser.toHeaderMap(response.getHeaders()).get("Content-Range");
+                if (contentRange == null) {
+                    throw new IOException("Partial response without Content-Range");
+                }
+                long first = FileDownloadRequest.parseContentRange(contentRange)[0];
+                if (first != mPosition) {
+                    throw new IOException(
+                            "Expected a range from " + mPosition + ", got " + contentRange);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable HttpResponse response) {
+        if (response != null && response.getContent() != null) {
+            try {
+                response.getContent().close();
+            } catch (IOException e) {
+                VolleyLog.v("Error occurred when closing InputStream");
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                VolleyLog.v("Error occurred when closing %s", file);
+            }
+        }
+    }
+
+    /**
+     * Carries the URL, headers and timeout of a segment to the {@link BaseHttpStack}. It is only
+     * passed to {@link BaseHttpStack#executeRequest} and never added to a queue.
+     */
+    private static class SegmentRequest extends Request<Void> {
+        private final Map<String, String> mHeaders;
+
+        SegmentRequest(
+                int method, String url, @Nullable Map<String, String> headers, int timeoutMs) {
+            super(method, url, null);
+            mHeaders = headers != null ? headers : Collections.<String, String>emptyMap();
+            setShouldCache(false);
+            setRetryPolicy(new DefaultRetryPolicy(timeoutMs, 0, 1f));
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return mHeaders;
+        }
+
+        // Only called by the dispatchers of a RequestQueue, which never see this request.
+        @Override
+        protected Response<Void> parseNetworkResponse(NetworkResponse response) {
+            return null;
+        }
+
+        @Override
+        protected void deliverResponse(Void response) {}
+    }
+
+    /**
+     * Builder is used to build an instance of {@link ChunkedFileDownloader} from values configured
+     * by the setters.
+     */
+    public static class Builder {
+        private static final int DEFAULT_TIMEOUT_MS = 30 * 1000;
+        private final BaseHttpStack mHttpStack;
+        private final Executor mExecutor;
+        private Executor mDeliveryExecutor;
+        private int mSegmentCount = DEFAULT_SEGMENT_COUNT;
+        private int mSegmentRetries = DEFAULT_SEGMENT_RETRIES;
+        private int mTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+        /**
+         * @param httpStack HTTP stack performing the requests, e.g. a {@link HurlStack}
+         * @param executor executor the segments are downloaded on
+         */
+        public Builder(BaseHttpStack httpStack, Executor executor) {
+            mHttpStack = httpStack;
+            mExecutor = executor;
+        }
+
+        /** Sets the number of segments downloaded in parallel. Defaults to 4. */
+        public Builder setSegmentCount(int segmentCount) {
+            if (segmentCount <= 0) {
+                throw new IllegalArgumentException("segmentCount must be positive");
+            }
+            mSegmentCount = segmentCount;
+            return this;
+        }
+
+        /** Sets the number of times a failed segment is retried. Defaults to 3. */
+        public Builder setSegmentRetries(int segmentRetries) {
+            mSegmentRetries = segmentRetries;
+            return this;
+        }
+
+        /** Sets the connect and read timeout of each connection. Defaults to 30 seconds. */
+        public Builder setTimeoutMs(int timeoutMs) {
+            mTimeoutMs = timeoutMs;
+            return this;
+        }
+
+        /** Sets the executor listeners are invoked on. Defaults to the main thread. */
+        public Builder setDeliveryExecutor(Executor deliveryExecutor) {
+            mDeliveryExecutor = deliveryExecutor;
+            return this;
+        }
+
+        public ChunkedFileDownloader build() {
+            if (mDeliveryExecutor == null) {
+                final Handler handler = new Handler(Looper.getMainLooper());
+                mDeliveryExecutor =
+                        new Executor() {
+                            @Override
+                            public void execute(Runnable command) {
+                                handler.post(command);
+                            }
+                        };
+            }
+            return new ChunkedFileDownloader(
+                    mHttpStack,
+                    mExecutor,
+                    mDeliveryExecutor,
+                    mSegmentCount,
+                    mSegmentRetries,
+                    mTimeoutMs);
+        }
+    }
+}
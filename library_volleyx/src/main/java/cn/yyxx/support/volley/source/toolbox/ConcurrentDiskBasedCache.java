@@ -0,0 +1,511 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import cn.yyxx.support.volley.source.Cache;
+import cn.yyxx.support.volley.source.VolleyLog;
+import cn.yyxx.support.volley.source.toolbox.DiskBasedCache.CacheHeader;
+import cn.yyxx.support.volley.source.toolbox.DiskBasedCache.CountingInputStream;
+
+/**
+ * Cache implementation with the same on-disk layout as {@link DiskBasedCache}, one file per entry
+ * in the specified directory, that lets requests for different keys proceed in parallel.
+ *
+ * <p>{@link DiskBasedCache} synchronizes every method on the cache instance, so a slow write of a
+ * large entry blocks all concurrent reads. This cache instead splits the key space into stripes,
+ * each with its own lock and least-recently-used index. Keys are assigned to stripes by file name,
+ * so two keys sharing a file are always guarded by the same lock. The total size is tracked
+ * atomically and pruning evicts the least recently used entry across all stripes until the cache
+ * is back under its high water mark.
+ *
+ * <p>This cache supports the {@link Entry#allResponseHeaders} headers field.
+ */
+public class ConcurrentDiskBasedCache implements Cache {
+
+    /** Default maximum disk usage in bytes. */
+    private static final int DEFAULT_DISK_USAGE_BYTES = 5 * 1024 * 1024;
+
+    /** Default number of stripes the key space is divided into. */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /** High water mark percentage for the cache */
+    @VisibleForTesting
+    static final float HYSTERESIS_FACTOR = DiskBasedCache.HYSTERESIS_FACTOR;
+
+    /** The stripes, each guarding the keys whose file names hash to it. */
+    private final Stripe[] mStripes;
+
+    /** Total amount of space currently used by the cache in bytes. */
+    private final AtomicLong mTotalSize = new AtomicLong();
+
+    /** Source of access ticks used to compare recency across stripes. */
+    private final AtomicLong mAccessClock = new AtomicLong();
+
+    /** Set while a thread is pruning, so that concurrent writers don't prune at the same time. */
+    private final AtomicBoolean mPruning = new AtomicBoolean();
+
+    /** The supplier for the root directory to use for the cache. */
+    private final FileSupplier mRootDirectorySupplier;
+
+    /** The maximum size of the cache in bytes. */
+    private final int mMaxCacheSizeInBytes;
+
+    /**
+     * Constructs an instance of the ConcurrentDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes. Note that the cache may
+     *     briefly exceed this size on disk when writing a new entry that pushes it over the limit
+     *     until the ensuing pruning completes.
+     * @param concurrencyLevel The number of stripes to divide the key space into.
+     */
+    public ConcurrentDiskBasedCache(
+            FileSupplier rootDirectorySupplier, int maxCacheSizeInBytes, int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel must be positive");
+        }
+        mRootDirectorySupplier = rootDirectorySupplier;
+        mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+        mStripes = new Stripe[concurrencyLevel];
+        for (int i = 0; i < concurrencyLevel; i++) {
+            mStripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Constructs an instance of the ConcurrentDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
+     */
+    public ConcurrentDiskBasedCache(FileSupplier rootDirectorySupplier, int maxCacheSizeInBytes) {
+        this(rootDirectorySupplier, maxCacheSizeInBytes, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs an instance of the ConcurrentDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectory The root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes.
+     */
+    public ConcurrentDiskBasedCache(final File rootDirectory, int maxCacheSizeInBytes) {
+        this(
+                new FileSupplier() {
+                    @Override
+                    public File get() {
+                        return rootDirectory;
+                    }
+                },
+                maxCacheSizeInBytes);
+    }
+
+    /**
+     * Constructs an instance of the ConcurrentDiskBasedCache at the specified directory using the
+     * default maximum cache size of 5MB.
+     *
+     * @param rootDirectory The root directory of the cache.
+     */
+    public ConcurrentDiskBasedCache(File rootDirectory) {
+        this(rootDirectory, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    /**
+     * Constructs an instance of the ConcurrentDiskBasedCache at the specified directory using the
+     * default maximum cache size of 5MB.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     */
+    public ConcurrentDiskBasedCache(FileSupplier rootDirectorySupplier) {
+        this(rootDirectorySupplier, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    /** Clears the cache. Deletes all cached files from disk. */
+    @Override
+    public void clear() {
+        lockAll();
+        try {
+            File[] files = mRootDirectorySupplier.get().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            for (Stripe stripe : mStripes) {
+                stripe.entries.clear();
+            }
+            mTotalSize.set(0);
+        } finally {
+            unlockAll();
+        }
+        VolleyLog.d("Cache cleared.");
+    }
+
+    /** Returns the cache entry with the specified key if it exists, null otherwise. */
+    @Override
+    public Entry get(String key) {
+        String filename = DiskBasedCache.getFilenameForKey(key);
+        Stripe stripe = stripeFor(filename);
+        stripe.lock.lock();
+        try {
+            Node node = stripe.entries.get(key);
+            // if the entry does not exist, return.
+            if (node == null) {
+                return null;
+            }
+            node.lastAccess = mAccessClock.incrementAndGet();
+            File file = new File(mRootDirectorySupplier.get(), filename);
+            try {
+                CountingInputStream cis =
+                        new CountingInputStream(
+                                new BufferedInputStream(new FileInputStream(file)), file.length());
+                try {
+                    CacheHeader entryOnDisk = CacheHeader.readHeader(cis);
+                    if (!TextUtils.equals(key, entryOnDisk.key)) {
+                        // File was shared by two keys and now holds data for a different entry!
+                        VolleyLog.d(
+                                "%s: key=%s, found=%s",
+                                file.getAbsolutePath(), key, entryOnDisk.key);
+                        // Remove key whose contents on disk have been replaced.
+                        removeEntry(stripe, key);
+                        return null;
+                    }
+                    byte[] data = DiskBasedCache.streamToBytes(cis, cis.bytesRemaining());
+                    return node.header.toCacheEntry(data);
+                } finally {
+                    // Any IOException thrown here is handled by the below catch block by design.
+                    //noinspection ThrowFromFinallyBlock
+                    cis.close();
+                }
+            } catch (IOException e) {
+                VolleyLog.d("%s: %s", file.getAbsolutePath(), e.toString());
+                remove(key);
+                return null;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Initializes the ConcurrentDiskBasedCache by scanning for all files currently in the
+     * specified root directory. Creates the root directory if necessary. Other operations wait
+     * until the scan is complete.
+     */
+    @Override
+    public void initialize() {
+        lockAll();
+        try {
+            File rootDirectory = mRootDirectorySupplier.get();
+            if (!rootDirectory.exists()) {
+                if (!rootDirectory.mkdirs()) {
+                    VolleyLog.e("Unable to create cache dir %s", rootDirectory.getAbsolutePath());
+                }
+                return;
+            }
+            File[] files = rootDirectory.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                try {
+                    long entrySize = file.length();
+                    CountingInputStream cis =
+                            new CountingInputStream(
+                                    new BufferedInputStream(new FileInputStream(file)),
+                                    entrySize);
+                    try {
+                        CacheHeader entry = CacheHeader.readHeader(cis);
+                        entry.size = entrySize;
+                        putEntry(stripeFor(file.getName()), entry.key, entry);
+                    } finally {
+                        // Any IOException thrown here is handled by the below catch block by
+                        // design.
+                        //noinspection ThrowFromFinallyBlock
+                        cis.close();
+                    }
+                } catch (IOException e) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Invalidates an entry in the cache.
+     *
+     * @param key Cache key
+     * @param fullExpire True to fully expire the entry, false to soft expire
+     */
+    @Override
+    public void invalidate(String key, boolean fullExpire) {
+        Stripe stripe = stripeFor(DiskBasedCache.getFilenameForKey(key));
+        stripe.lock.lock();
+        try {
+            Entry entry = get(key);
+            if (entry != null) {
+                entry.softTtl = 0;
+                if (fullExpire) {
+                    entry.ttl = 0;
+                }
+                putLocked(stripe, key, entry);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        pruneIfNeeded();
+    }
+
+    /** Puts the entry with the specified key into the cache. */
+    @Override
+    public void put(String key, Entry entry) {
+        // If adding this entry would trigger a prune, but pruning would cause the new entry to be
+        // deleted, then skip writing the entry in the first place, as this is just churn.
+        // Note that we don't include the cache header overhead in this calculation for simplicity,
+        // so putting entries which are just below the threshold may still cause this churn.
+        if (mTotalSize.get() + entry.data.length > mMaxCacheSizeInBytes
+                && entry.data.length > mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+            return;
+        }
+        Stripe stripe = stripeFor(DiskBasedCache.getFilenameForKey(key));
+        boolean written;
+        stripe.lock.lock();
+        try {
+            written = putLocked(stripe, key, entry);
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (written) {
+            pruneIfNeeded();
+        } else {
+            // Re-initializing takes every stripe lock, so it must happen outside of this one.
+            initializeIfRootDirectoryDeleted();
+        }
+    }
+
+    /** Removes the specified key from the cache if it exists. */
+    @Override
+    public void remove(String key) {
+        String filename = DiskBasedCache.getFilenameForKey(key);
+        Stripe stripe = stripeFor(filename);
+        stripe.lock.lock();
+        try {
+            boolean deleted = new File(mRootDirectorySupplier.get(), filename).delete();
+            removeEntry(stripe, key);
+            if (!deleted) {
+                VolleyLog.d(
+                        "Could not delete cache entry for key=%s, filename=%s", key, filename);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the entry to disk and records it in the stripe. Must be called with the stripe lock
+     * held.
+     *
+     * @return false if the entry could not be written.
+     */
+    private boolean putLocked(Stripe stripe, String key, Entry entry) {
+        File file = new File(mRootDirectorySupplier.get(), DiskBasedCache.getFilenameForKey(key));
+        try {
+            BufferedOutputStream fos = new BufferedOutputStream(new FileOutputStream(file));
+            CacheHeader e = new CacheHeader(key, entry);
+            boolean success = e.writeHeader(fos);
+            if (!success) {
+                fos.close();
+                VolleyLog.d("Failed to write header for %s", file.getAbsolutePath());
+                throw new IOException();
+            }
+            fos.write(entry.data);
+            fos.close();
+            e.size = file.length();
+            putEntry(stripe, key, e);
+            return true;
+        } catch (IOException e) {
+            boolean deleted = file.delete();
+            if (!deleted) {
+                VolleyLog.d("Could not clean up file %s", file.getAbsolutePath());
+            }
+            return false;
+        }
+    }
+
+    /** Re-initialize the cache if the directory was deleted. */
+    private void initializeIfRootDirectoryDeleted() {
+        if (!mRootDirectorySupplier.get().exists()) {
+            VolleyLog.d("Re-initializing cache after external clearing.");
+            clearEntries();
+            initialize();
+        }
+    }
+
+    /**
+     * Prunes the cache to fit the maximum size. Only one thread prunes at a time; the others
+     * return immediately and leave the work to it.
+     */
+    private void pruneIfNeeded() {
+        if (mTotalSize.get() < mMaxCacheSizeInBytes || !mPruning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (VolleyLog.DEBUG) {
+                VolleyLog.v("Pruning old cache entries.");
+            }
+
+            long before = mTotalSize.get();
+            int prunedFiles = 0;
+            long startTime = SystemClock.elapsedRealtime();
+
+            while (mTotalSize.get() >= mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+                Stripe stripe = findStripeWithEldestEntry();
+                if (stripe == null) {
+                    break;
+                }
+                stripe.lock.lock();
+                try {
+                    // The eldest entry may have been accessed or removed since it was found; in
+                    // that case this evicts whatever is now the least recently used in the stripe.
+                    Iterator<Map.Entry<String, Node>> iterator =
+                            stripe.entries.entrySet().iterator();
+                    if (!iterator.hasNext()) {
+                        continue;
+                    }
+                    CacheHeader e = iterator.next().getValue().header;
+                    String filename = DiskBasedCache.getFilenameForKey(e.key);
+                    boolean deleted = new File(mRootDirectorySupplier.get(), filename).delete();
+                    if (!deleted) {
+                        VolleyLog.d(
+                                "Could not delete cache entry for key=%s, filename=%s",
+                                e.key, filename);
+                    }
+                    iterator.remove();
+                    mTotalSize.addAndGet(-e.size);
+                    prunedFiles++;
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+
+            if (VolleyLog.DEBUG) {
+                VolleyLog.v(
+                        "pruned %d files, %d bytes, %d ms",
+                        prunedFiles,
+                        (mTotalSize.get() - before),
+                        SystemClock.elapsedRealtime() - startTime);
+            }
+        } finally {
+            mPruning.set(false);
+        }
+    }
+
+    /** Returns the stripe whose least recently used entry is the oldest, or null if all empty. */
+    private Stripe findStripeWithEldestEntry() {
+        Stripe eldestStripe = null;
+        long eldestAccess = Long.MAX_VALUE;
+        for (Stripe stripe : mStripes) {
+            stripe.lock.lock();
+            try {
+                Iterator<Node> iterator = stripe.entries.values().iterator();
+                if (iterator.hasNext()) {
+                    long lastAccess = iterator.next().lastAccess;
+                    if (lastAccess < eldestAccess) {
+                        eldestAccess = lastAccess;
+                        eldestStripe = stripe;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return eldestStripe;
+    }
+
+    /**
+     * Puts the entry with the specified key into the stripe. Must be called with the stripe lock
+     * held.
+     */
+    private void putEntry(Stripe stripe, String key, CacheHeader entry) {
+        Node oldNode = stripe.entries.put(key, new Node(entry, mAccessClock.incrementAndGet()));
+        mTotalSize.addAndGet(oldNode == null ? entry.size : entry.size - oldNode.header.size);
+    }
+
+    /**
+     * Removes the entry identified by 'key' from the stripe. Must be called with the stripe lock
+     * held.
+     */
+    private void removeEntry(Stripe stripe, String key) {
+        Node removed = stripe.entries.remove(key);
+        if (removed != null) {
+            mTotalSize.addAndGet(-removed.header.size);
+        }
+    }
+
+    private void clearEntries() {
+        lockAll();
+        try {
+            for (Stripe stripe : mStripes) {
+                stripe.entries.clear();
+            }
+            mTotalSize.set(0);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private Stripe stripeFor(String filename) {
+        return mStripes[(filename.hashCode() & 0x7fffffff) % mStripes.length];
+    }
+
+    /** Acquires every stripe lock, always in the same order. */
+    private void lockAll() {
+        for (Stripe stripe : mStripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = mStripes.length - 1; i >= 0; i--) {
+            mStripes[i].lock.unlock();
+        }
+    }
+
+    /** A lock and the least-recently-used index of the keys guarded by it. */
+    private static class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+
+        /** Map of the Key, Node pairs in access order. Guarded by {@link #lock}. */
+        final Map<String, Node> entries = new LinkedHashMap<>(16, .75f, true);
+    }
+
+    /** A cache header along with the tick of its most recent access. */
+    private static class Node {
+        final CacheHeader header;
+        long lastAccess;
+
+        Node(CacheHeader header, long lastAccess) {
+            this.header = header;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
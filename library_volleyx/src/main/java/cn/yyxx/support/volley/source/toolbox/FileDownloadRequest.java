@@ -0,0 +1,379 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import cn.yyxx.support.volley.source.AuthFailureError;
+import cn.yyxx.support.volley.source.Header;
+import cn.yyxx.support.volley.source.ParseError;
+import cn.yyxx.support.volley.source.Response.ErrorListener;
+import cn.yyxx.support.volley.source.Response.Listener;
+import cn.yyxx.support.volley.source.VolleyError;
+import cn.yyxx.support.volley.source.VolleyLog;
+
+/**
+ * A request that downloads the response body into a file, for bodies too large to hold in memory.
+ *
+ * <p>The body is written to {@code <target>.part} as it is read from the network, and moved to the
+ * target file once complete. If the download is interrupted, the next attempt - a retry by the
+ * request's {@link cn.yyxx.support.volley.source.RetryPolicy} or a new request for the same target
+ * - asks the server for the remaining bytes only, with a {@code Range} header guarded by an {@code
+ * If-Range} header carrying the ETag of the partial download. If the resource has changed, the
+ * server sends the full body and the download starts over.
+ *
+ * <p>If an expected MD5 digest is given, the completed file is verified against it before it is
+ * moved into place; on a mismatch the partial download is discarded and a {@link ParseError} is
+ * delivered.
+ *
+ * <p>Download requests are never cached.
+ */
+public class FileDownloadRequest extends StreamingRequest<File> {
+
+    /** Receives download progress. */
+    public interface ProgressListener {
+        /**
+         * Invoked as the download progresses.
+         *
+         * @param bytesDownloaded bytes of the file downloaded so far, including resumed bytes
+         * @param totalBytes total size of the file, or -1 if unknown
+         */
+        void onProgress(long bytesDownloaded, long totalBytes);
+    }
+
+    /** Minimum number of bytes downloaded between two progress updates. */
+    private static final int PROGRESS_INTERVAL_BYTES = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final File mTargetFile;
+
+    private final File mPartFile;
+
+    /** Holds the ETag of the partial download. */
+    private final File mETagFile;
+
+    @Nullable
+    private final String mExpectedMd5;
+
+    @Nullable
+    private volatile ProgressListener mProgressListener;
+
+    private volatile Executor mProgressExecutor;
+
+    /**
+     * Creates a new GET request downloading into the given file.
+     *
+     * @param url URL to download
+     * @param targetFile file to store the download in; replaced once the download is complete
+     * @param expectedMd5 hex MD5 digest to verify the download against, or null to skip it
+     * @param listener Listener to receive the completed file
+     * @param errorListener Error listener, or null to ignore errors
+     */
+    public FileDownloadRequest(
+            String url,
+            File targetFile,
+            @Nullable String expectedMd5,
+            Listener<File> listener,
+            @Nullable ErrorListener errorListener) {
+        super(Method.GET, url, listener, errorListener);
+        mTargetFile = targetFile;
+        mPartFile = new File(targetFile.getPath() + ".part");
+        mETagFile = new File(targetFile.getPath() + ".part.etag");
+        mExpectedMd5 = expectedMd5 != null ? expectedMd5.toLowerCase(Locale.US) : null;
+        setShouldCache(false);
+    }
+
+    /**
+     * Sets the listener receiving download progress. Progress is delivered on the main thread
+     * unless an executor is given with {@link #setProgressExecutor}.
+     */
+    public void setProgressListener(@Nullable ProgressListener listener) {
+        mProgressListener = listener;
+    }
+
+    /** Sets the executor progress is delivered on. */
+    public void setProgressExecutor(Executor executor) {
+        mProgressExecutor = executor;
+    }
+
+    /** Returns the file the download is stored in. */
+    public File getTargetFile() {
+        return mTargetFile;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() throws AuthFailureError {
+        Map<String, String> headers = new HashMap<>(super.getHeaders());
+        // Byte ranges refer to the encoded body, so ask for an unencoded one.
+        headers.put("Accept-Encoding", "identity");
+        String eTag = readETag();
+        if (mPartFile.length() > 0 && eTag != null) {
+            headers.put("Range", "bytes=" + mPartFile.length() + "-");
+            headers.put("If-Range", eTag);
+        } else {
+            discardPartialDownload();
+        }
+        return headers;
+    }
+
+    @Override
+    protected File parseStream(InputStream in, List<Header> headers)
+            throws IOException, ParseError {
+        Map<String, String> headerMap = HttpHeaderParser.toHeaderMap(headers);
+        long start = 0;
+        long total = -1;
+        String contentRange = headerMap.get("Content-Range");
+        if (contentRange != null) {
+            long[] range = parseContentRange(contentRange);
+            start = range[0];
+            total = range[1];
+            if (start > mPartFile.length()) {
+                // Not what was asked for; start over on the next attempt.
+                discardPartialDownload();
+                throw new IOException("Unexpected Content-Range " + contentRange);
+            }
+        } else {
+            String contentLength = headerMap.get("Content-Length");
+            if (contentLength != null) {
+                try {
+                    total = Long.parseLong(contentLength);
+                } catch (NumberFormatException e) {
+                    total = -1;
+                }
+            }
+        }
+
+        String eTag = headerMap.get("ETag");
+        if (start == 0 || !TextUtils.equals(eTag, readETag())) {
+            writeETag(eTag);
+        }
+
+        MessageDigest digest = mExpectedMd5 != null ? newMd5Digest() : null;
+        if (digest != null && start > 0) {
+            updateDigest(digest, mPartFile, start);
+        }
+
+        RandomAccessFile file = new RandomAccessFile(mPartFile, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            channel.truncate(start);
+            channel.position(start);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long downloaded = start;
+            long lastProgress = start;
+            postProgress(downloaded, total);
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                if (isCanceled()) {
+                    throw new ParseError(new IOException("Download canceled"));
+                }
+                byteBuffer.clear();
+                byteBuffer.limit(count);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+                if (digest != null) {
+                    digest.update(buffer, 0, count);
+                }
+                downloaded += count;
+                if (downloaded - lastProgress >= PROGRESS_INTERVAL_BYTES) {
+                    postProgress(downloaded, total);
+                    lastProgress = downloaded;
+                }
+            }
+            if (total != -1 && downloaded != total) {
+                throw new IOException("Download ended at " + downloaded + " of " + total);
+            }
+            if (downloaded != lastProgress) {
+                postProgress(downloaded, total);
+            }
+        } finally {
+            file.close();
+        }
+
+        if (digest != null) {
+            String md5 = toHex(digest.digest());
+            if (!md5.equals(mExpectedMd5)) {
+                discardPartialDownload();
+                throw new ParseError(
+                        new IOException("MD5 mismatch, expected " + mExpectedMd5 + " got " + md5));
+            }
+        }
+        if (mTargetFile.exists() && !mTargetFile.delete()) {
+            throw new ParseError(new IOException("Could not replace " + mTargetFile));
+        }
+        if (!mPartFile.renameTo(mTargetFile)) {
+            throw new ParseError(new IOException("Could not move download to " + mTargetFile));
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mETagFile.delete();
+        return mTargetFile;
+    }
+
+    @Override
+    protected VolleyError parseNetworkError(VolleyError volleyError) {
+        if (volleyError.networkResponse != null
+                && volleyError.networkResponse.statusCode == 416) {
+            // The requested range is not satisfiable, so the partial download is of no use.
+            discardPartialDownload();
+        }
+        return super.parseNetworkError(volleyError);
+    }
+
+    /**
+     * Returns the first byte position and the total length, or -1 if unknown, of a Content-Range
+     * header value.
+     */
+    static long[] parseContentRange(String contentRange) throws IOException {
+        // bytes <first>-<last>/<total or *>
+        try {
+            String range = contentRange.trim();
+            if (range.startsWith("bytes")) {
+                range = range.substring("bytes".length()).trim();
+            }
+            int dash = range.indexOf('-');
+            int slash = range.indexOf('/');
+            long first = Long.parseLong(range.substring(0, dash).trim());
+            String total = range.substring(slash + 1).trim();
+            return new long[] {first, "*".equals(total) ? -1 : Long.parseLong(total)};
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed Content-Range " + contentRange);
+        }
+    }
+
+    private void postProgress(final long downloaded, final long total) {
+        final ProgressListener listener = mProgressListener;
+        if (listener == null) {
+            return;
+        }
+        Executor executor = mProgressExecutor;
+        if (executor == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            executor =
+                    new Executor() {
+                        @Override
+                        public void execute(Runnable command) {
+                            handler.post(command);
+                        }
+                    };
+            mProgressExecutor = executor;
+        }
+        executor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isCanceled()) {
+                            listener.onProgress(downloaded, total);
+                        }
+                    }
+                });
+    }
+
+    @Nullable
+    private String readETag() {
+        if (!mETagFile.exists()) {
+            return null;
+        }
+        try {
+            FileInputStream in = new FileInputStream(mETagFile);
+            try {
+                byte[] bytes = new byte[(int) mETagFile.length()];
+                int offset = 0;
+                int count;
+                while (offset < bytes.length
+                        && (count = in.read(bytes, offset, bytes.length - offset)) != -1) {
+                    offset += count;
+                }
+                String eTag = new String(bytes, 0, offset, "UTF-8");
+                return eTag.isEmpty() ? null : eTag;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            VolleyLog.d("Could not read %s: %s", mETagFile.getAbsolutePath(), e.toString());
+            return null;
+        }
+    }
+
+    private void writeETag(@Nullable String eTag) throws IOException {
+        if (eTag == null) {
+            // Without an ETag the download can't be resumed safely.
+            //noinspection ResultOfMethodCallIgnored
+            mETagFile.delete();
+            return;
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(mETagFile), "UTF-8");
+        try {
+            writer.write(eTag);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void discardPartialDownload() {
+        //noinspection ResultOfMethodCallIgnored
+        mPartFile.delete();
+        //noinspection ResultOfMethodCallIgnored
+        mETagFile.delete();
+    }
+
+    private static MessageDigest newMd5Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.toString());
+        }
+    }
+
+    /** Feeds the first {@code length} bytes of the file into the digest. */
+    private static void updateDigest(MessageDigest digest, File file, long length)
+            throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = length;
+            int count;
+            while (remaining > 0
+                    && (count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining)))
+                            != -1) {
+                digest.update(buffer, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,204 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import cn.yyxx.support.volley.source.Header;
+
+/**
+ * Helpers for compressed HTTP bodies, for {@link BaseHttpStack}s that don't handle them natively.
+ *
+ * <p>Response bodies are inflated while they are read, with the compressed input buffered in
+ * arrays from a {@link ByteArrayPool}, so the compressed body is never held in memory as a whole.
+ */
+public final class HttpContentEncoding {
+
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    /** Value of the Accept-Encoding header for the encodings {@link #decode} supports. */
+    public static final String SUPPORTED_ENCODINGS = "gzip, deflate";
+
+    public static final String ENCODING_GZIP = "gzip";
+
+    private static final String ENCODING_DEFLATE = "deflate";
+
+    /** Size of the buffers for compressed data. */
+    private static final int BUFFER_SIZE = 8192;
+
+    private HttpContentEncoding() {}
+
+    /** Returns whether {@link #decode} can decode bodies with the given Content-Encoding. */
+    public static boolean isSupported(@Nullable String contentEncoding) {
+        return ENCODING_GZIP.equalsIgnoreCase(contentEncoding)
+                || ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding);
+    }
+
+    /**
+     * Returns a stream of the decoded body. Closing it closes the given stream and returns the
+     * buffer to the pool.
+     *
+     * @param in stream of the encoded body
+     * @param contentEncoding the Content-Encoding of the body; must be {@link #isSupported
+     *     supported}
+     * @param pool pool to take the buffer for the encoded data from
+     */
+    public static InputStream decode(InputStream in, String contentEncoding, ByteArrayPool pool)
+            throws IOException {
+        if (ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding)) {
+            return inflate(in, pool);
+        }
+        try {
+            return new PooledGzipInputStream(in, pool);
+        } catch (EOFException e) {
+            // Some servers label empty bodies as gzip.
+            in.close();
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    }
+
+    /**
+     * Returns the headers without Content-Encoding and Content-Length, which describe the encoded
+     * body rather than the decoded one.
+     */
+    public static List<Header> removeEncodingHeaders(List<Header> headers) {
+        List<Header> decodedHeaders = new ArrayList<>(headers.size());
+        for (Header header : headers) {
+            if (!HEADER_CONTENT_ENCODING.equalsIgnoreCase(header.getName())
+                    && !HEADER_CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+                decodedHeaders.add(header);
+            }
+        }
+        return decodedHeaders;
+    }
+
+    /**
+     * Returns a stream inflating a deflate body. RFC 7230 defines deflate as a zlib stream, but
+     * some servers send raw deflate data, so the first two bytes decide how it is inflated.
+     */
+    private static InputStream inflate(InputStream in, ByteArrayPool pool) throws IOException {
+        byte[] buf = pool.getBuf(BUFFER_SIZE);
+        int count = 0;
+        try {
+            while (count < 2) {
+                int read = in.read(buf, count, 2 - count);
+                if (read == -1) {
+                    break;
+                }
+                count += read;
+            }
+        } catch (IOException e) {
+            pool.returnBuf(buf);
+            throw e;
+        }
+        if (count == 0) {
+            // Some servers label empty bodies as deflate.
+            pool.returnBuf(buf);
+            in.close();
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        boolean zlib = count == 2 && isZlibHeader(buf[0], buf[1]);
+        Inflater inflater = new Inflater(/* nowrap= */ !zlib);
+        return new PooledInflaterInputStream(in, inflater, buf, count, pool);
+    }
+
+    /**
+     * Returns whether the bytes are a zlib header (RFC 1950): the deflate method with a window of
+     * at most 32 KB, and a check value that makes the header a multiple of 31.
+     */
+    private static boolean isZlibHeader(byte first, byte second) {
+        int cmf = first & 0xff;
+        int flg = second & 0xff;
+        return (cmf & 0x0f) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    /** Compresses a request body with gzip, buffering the output in arrays from the pool. */
+    public static byte[] gzip(byte[] body, ByteArrayPool pool) throws IOException {
+        PoolingByteArrayOutputStream bytes =
+                new PoolingByteArrayOutputStream(pool, Math.max(256, body.length / 4));
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes, BUFFER_SIZE);
+        try {
+            gzip.write(body);
+            gzip.finish();
+            return bytes.toByteArray();
+        } finally {
+            // Also returns the output buffer to the pool.
+            gzip.close();
+        }
+    }
+
+    /** Inflates a gzip stream through an input buffer from a {@link ByteArrayPool}. */
+    private static class PooledGzipInputStream extends GZIPInputStream {
+        private final ByteArrayPool mPool;
+        private boolean mClosed = false;
+
+        PooledGzipInputStream(InputStream in, ByteArrayPool pool) throws IOException {
+            // The header is read straight from the stream, so the buffer can be swapped after.
+            super(in, 1);
+            mPool = pool;
+            buf = pool.getBuf(BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            try {
+                super.close();
+            } finally {
+                mPool.returnBuf(buf);
+            }
+        }
+    }
+
+    /**
+     * Inflates a zlib or raw deflate stream through an input buffer from a {@link ByteArrayPool}.
+     */
+    private static class PooledInflaterInputStream extends InflaterInputStream {
+        private final ByteArrayPool mPool;
+        private boolean mClosed = false;
+
+        /**
+         * @param buf pooled buffer holding the first {@code count} bytes of the stream, which were
+         *     already read from {@code in}
+         */
+        PooledInflaterInputStream(
+                InputStream in, Inflater inflater, byte[] buf, int count, ByteArrayPool pool) {
+            super(in, inflater, 1);
+            mPool = pool;
+            this.buf = buf;
+            len = count;
+            inf.setInput(buf, 0, count);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            try {
+                super.close();
+            } finally {
+                // The inflater was passed in, so the superclass doesn't release it.
+                inf.end();
+                mPool.returnBuf(buf);
+            }
+        }
+    }
+}
@@ -40,11 +40,22 @@ import cn.yyxx.support.volley.source.Request.Method;
 
 /**
  * A {@link BaseHttpStack} based on {@link HttpURLConnection}.
+ *
+ * <p>Unless a request sets its own Accept-Encoding header, responses are requested with gzip or
+ * deflate encoding and decoded while they are read; their Content-Encoding and Content-Length
+ * headers are removed. Request bodies are compressed with gzip if {@link
+ * Request#shouldGzipBody()} is set.
  */
 public class HurlStack extends BaseHttpStack {
 
     private static final int HTTP_CONTINUE = 100;
 
+    /**
+     * Size of the default pool; large enough to keep several of the 8 KB buffers that {@link
+     * HttpContentEncoding} decodes through, as well as the smaller ones {@link BasicNetwork} uses.
+     */
+    private static final int DEFAULT_POOL_SIZE = 64 * 1024;
+
     /**
      * An interface for transforming URLs before use.
      */
@@ -53,6 +64,7 @@ public class HurlStack extends BaseHttpStack {
 
     private final UrlRewriter mUrlRewriter;
     private final SSLSocketFactory mSslSocketFactory;
+    private final ByteArrayPool mPool;
 
     public HurlStack() {
         this(/* urlRewriter = */ null);
@@ -70,8 +82,27 @@ public class HurlStack extends BaseHttpStack {
      * @param sslSocketFactory SSL factory to use for HTTPS connections
      */
     public HurlStack(UrlRewriter urlRewriter, SSLSocketFactory sslSocketFactory) {
+        this(urlRewriter, sslSocketFactory, new BucketedByteArrayPool(DEFAULT_POOL_SIZE));
+    }
+
+    /**
+     * @param urlRewriter      Rewriter to use for request URLs
+     * @param sslSocketFactory SSL factory to use for HTTPS connections
+     * @param pool             pool for the buffers used to encode and decode bodies
+     */
+    public HurlStack(
+            UrlRewriter urlRewriter, SSLSocketFactory sslSocketFactory, ByteArrayPool pool) {
         mUrlRewriter = urlRewriter;
         mSslSocketFactory = sslSocketFactory;
+        mPool = pool;
+    }
+
+    /**
+     * Returns the pool for the buffers used to encode and decode bodies. A {@link BasicNetwork}
+     * created for this stack without a pool of its own shares it.
+     */
+    public ByteArrayPool getByteArrayPool() {
+        return mPool;
     }
 
     @Override
@@ -93,8 +124,18 @@ public class HurlStack extends BaseHttpStack {
         HttpURLConnection connection = openConnection(parsedUrl, request);
         boolean keepConnectionOpen = false;
         try {
+            boolean decodeBody = true;
             for (String headerName : map.keySet()) {
                 connection.setRequestProperty(headerName, map.get(headerName));
+                if (HttpContentEncoding.HEADER_ACCEPT_ENCODING.equalsIgnoreCase(headerName)) {
+                    decodeBody = false;
+                }
+            }
+            if (decodeBody) {
+                // Setting this disables the transparent gzip of the platform, which lacks deflate.
+                connection.setRequestProperty(
+                        HttpContentEncoding.HEADER_ACCEPT_ENCODING,
+                        HttpContentEncoding.SUPPORTED_ENCODINGS);
             }
             setConnectionParametersForRequest(connection, request);
             // Initialize HttpResponse with data from the HttpURLConnection.
@@ -109,14 +150,24 @@ public class HurlStack extends BaseHttpStack {
                 return new HttpResponse(responseCode, convertHeaders(connection.getHeaderFields()));
             }
 
+            List<Header> headers = convertHeaders(connection.getHeaderFields());
+            int contentLength = connection.getContentLength();
             // Need to keep the connection open until the stream is consumed by the caller. Wrap the
             // stream such that close() will disconnect the connection.
+            InputStream content = createInputStream(request, connection);
             keepConnectionOpen = true;
-            return new HttpResponse(
-                    responseCode,
-                    convertHeaders(connection.getHeaderFields()),
-                    connection.getContentLength(),
-                    createInputStream(request, connection));
+            String contentEncoding = connection.getContentEncoding();
+            if (decodeBody && HttpContentEncoding.isSupported(contentEncoding)) {
+                try {
+                    content = HttpContentEncoding.decode(content, contentEncoding, mPool);
+                } catch (IOException e) {
+                    content.close();
+                    throw e;
+                }
+                headers = HttpContentEncoding.removeEncodingHeaders(headers);
+                contentLength = -1;
+            }
+            return new HttpResponse(responseCode, headers, contentLength, content);
         } finally {
             if (!keepConnectionOpen) {
                 connection.disconnect();
@@ -309,10 +360,16 @@ public class HurlStack extends BaseHttpStack {
             connection.setRequestProperty(
                     HttpHeaderParser.HEADER_CONTENT_TYPE, request.getBodyContentType());
         }
+        if (request.shouldGzipBody()) {
+            body = HttpContentEncoding.gzip(body, mPool);
+            connection.setRequestProperty(
+                    HttpContentEncoding.HEADER_CONTENT_ENCODING, HttpContentEncoding.ENCODING_GZIP);
+        }
         DataOutputStream out =
                 new DataOutputStream(createOutputStream(request, connection, body.length));
         out.write(body);
         out.close();
+        request.setNetworkBytesSent(body.length);
     }
 
     /**
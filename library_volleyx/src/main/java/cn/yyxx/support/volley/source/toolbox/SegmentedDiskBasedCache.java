@@ -0,0 +1,750 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cn.yyxx.support.volley.source.Cache;
+import cn.yyxx.support.volley.source.VolleyLog;
+import cn.yyxx.support.volley.source.toolbox.DiskBasedCache.CacheHeader;
+import cn.yyxx.support.volley.source.toolbox.DiskBasedCache.CountingInputStream;
+
+/**
+ * Cache implementation that stores entries in a small number of append-only segment files in the
+ * specified directory, together with a compact index mapping each key to the location of its
+ * record. The default disk usage size is 5MB, but is configurable.
+ *
+ * <p>Unlike {@link DiskBasedCache}, which keeps one file per entry and reads the header of every
+ * file in {@link #initialize()}, this cache only loads the index on startup and serves {@link
+ * #get(String)} with a single positioned read. Each record uses the same header layout as a {@link
+ * DiskBasedCache} file, followed by the entry data. Space held by replaced or evicted records is
+ * reclaimed by compacting old segments once the files on disk exceed the maximum cache size.
+ *
+ * <p>This cache supports the {@link Entry#allResponseHeaders} headers field.
+ */
+public class SegmentedDiskBasedCache implements Cache {
+
+    /** Map of the key hash, IndexEntry pairs in least-recently-used order. */
+    private final Map<Long, IndexEntry> mEntries = new LinkedHashMap<>(16, .75f, true);
+
+    /** Open segment files ordered by id, so that the oldest segment comes first. */
+    private final TreeMap<Integer, Segment> mSegments = new TreeMap<>();
+
+    /** Total amount of space used by live records in bytes. */
+    private long mTotalSize = 0;
+
+    /** Total size of all segment files in bytes, including replaced and evicted records. */
+    private long mDiskSize = 0;
+
+    /** The segment new records are appended to, or null if none has been opened yet. */
+    private Segment mActiveSegment;
+
+    /** Id assigned to the next segment file that is created. */
+    private int mNextSegmentId = 0;
+
+    /** Append stream for the index log, or null if the cache has not been initialized. */
+    private DataOutputStream mIndexOut;
+
+    /** Number of records in the index log, used to decide when to rewrite it. */
+    private int mIndexRecordCount = 0;
+
+    /** The supplier for the root directory to use for the cache. */
+    private final FileSupplier mRootDirectorySupplier;
+
+    /** The maximum size of the cache in bytes. */
+    private final int mMaxCacheSizeInBytes;
+
+    /** The size in bytes after which a new segment file is started. */
+    private final int mMaxSegmentSizeInBytes;
+
+    /** Default maximum disk usage in bytes. */
+    private static final int DEFAULT_DISK_USAGE_BYTES = 5 * 1024 * 1024;
+
+    /** Number of segments the maximum cache size is divided into. */
+    private static final int SEGMENTS_PER_CACHE = 4;
+
+    /** Minimum number of records in the index log before it is considered for a rewrite. */
+    private static final int MIN_INDEX_RECORDS_BEFORE_REWRITE = 256;
+
+    /** High water mark percentage for the cache */
+    @VisibleForTesting
+    static final float HYSTERESIS_FACTOR = DiskBasedCache.HYSTERESIS_FACTOR;
+
+    /** Magic number for current version of the index file format. */
+    private static final int INDEX_MAGIC = 0x20211017;
+
+    private static final String INDEX_FILENAME = "index";
+
+    private static final String INDEX_TMP_FILENAME = "index.tmp";
+
+    private static final String SEGMENT_FILENAME_PREFIX = "segment-";
+
+    private static final byte OP_PUT = 1;
+
+    private static final byte OP_REMOVE = 2;
+
+    /**
+     * Constructs an instance of the SegmentedDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectory The root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes. Note that the cache may
+     *     briefly exceed this size on disk when writing a new entry that pushes it over the limit
+     *     until the ensuing pruning and compaction completes.
+     */
+    public SegmentedDiskBasedCache(final File rootDirectory, int maxCacheSizeInBytes) {
+        this(
+                new FileSupplier() {
+                    @Override
+                    public File get() {
+                        return rootDirectory;
+                    }
+                },
+                maxCacheSizeInBytes);
+    }
+
+    /**
+     * Constructs an instance of the SegmentedDiskBasedCache at the specified directory.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     * @param maxCacheSizeInBytes The maximum size of the cache in bytes. Note that the cache may
+     *     briefly exceed this size on disk when writing a new entry that pushes it over the limit
+     *     until the ensuing pruning and compaction completes.
+     */
+    public SegmentedDiskBasedCache(FileSupplier rootDirectorySupplier, int maxCacheSizeInBytes) {
+        mRootDirectorySupplier = rootDirectorySupplier;
+        mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+        mMaxSegmentSizeInBytes = Math.max(maxCacheSizeInBytes / SEGMENTS_PER_CACHE, 1);
+    }
+
+    /**
+     * Constructs an instance of the SegmentedDiskBasedCache at the specified directory using the
+     * default maximum cache size of 5MB.
+     *
+     * @param rootDirectory The root directory of the cache.
+     */
+    public SegmentedDiskBasedCache(File rootDirectory) {
+        this(rootDirectory, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    /**
+     * Constructs an instance of the SegmentedDiskBasedCache at the specified directory using the
+     * default maximum cache size of 5MB.
+     *
+     * @param rootDirectorySupplier The supplier for the root directory of the cache.
+     */
+    public SegmentedDiskBasedCache(FileSupplier rootDirectorySupplier) {
+        this(rootDirectorySupplier, DEFAULT_DISK_USAGE_BYTES);
+    }
+
+    /** Clears the cache. Deletes all segment and index files from disk. */
+    @Override
+    public synchronized void clear() {
+        closeFiles();
+        File[] files = mRootDirectorySupplier.get().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (isCacheFile(file.getName())) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+        resetState();
+        VolleyLog.d("Cache cleared.");
+    }
+
+    /** Returns the cache entry with the specified key if it exists, null otherwise. */
+    @Override
+    public synchronized Entry get(String key) {
+        IndexEntry indexEntry = mEntries.get(hashKey(key));
+        // if the entry does not exist, return.
+        if (indexEntry == null) {
+            return null;
+        }
+        Segment segment = mSegments.get(indexEntry.segmentId);
+        try {
+            if (segment == null) {
+                throw new IOException("Missing segment " + indexEntry.segmentId);
+            }
+            byte[] record = segment.read(indexEntry.offset, indexEntry.length);
+            CountingInputStream cis =
+                    new CountingInputStream(new ByteArrayInputStream(record), record.length);
+            CacheHeader header = CacheHeader.readHeader(cis);
+            if (!TextUtils.equals(key, header.key)) {
+                // Two keys share a hash and the record belongs to the other one, so leave it be.
+                VolleyLog.d("%s: key=%s, found=%s", segment.file.getName(), key, header.key);
+                return null;
+            }
+            byte[] data = Arrays.copyOfRange(record, (int) cis.bytesRead(), record.length);
+            return header.toCacheEntry(data);
+        } catch (IOException e) {
+            VolleyLog.d("%s: %s", key, e.toString());
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Initializes the SegmentedDiskBasedCache by loading the index from the specified root
+     * directory and opening the segment files it refers to. Creates the root directory if
+     * necessary.
+     */
+    @Override
+    public synchronized void initialize() {
+        closeFiles();
+        resetState();
+        File rootDirectory = mRootDirectorySupplier.get();
+        if (!rootDirectory.exists()) {
+            if (!rootDirectory.mkdirs()) {
+                VolleyLog.e("Unable to create cache dir %s", rootDirectory.getAbsolutePath());
+                return;
+            }
+        }
+        readIndex(new File(rootDirectory, INDEX_FILENAME));
+        openSegments(rootDirectory);
+
+        // Drop index entries pointing at missing or truncated segments, then account for the
+        // live records in each segment.
+        Iterator<IndexEntry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            IndexEntry entry = iterator.next();
+            Segment segment = mSegments.get(entry.segmentId);
+            if (segment == null || entry.offset + entry.length > segment.length) {
+                iterator.remove();
+                continue;
+            }
+            segment.liveBytes += entry.length;
+            mTotalSize += entry.length;
+        }
+        deleteEmptySegments();
+
+        try {
+            rewriteIndex();
+        } catch (IOException e) {
+            VolleyLog.e(e, "Unable to write cache index in %s", rootDirectory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Invalidates an entry in the cache.
+     *
+     * @param key Cache key
+     * @param fullExpire True to fully expire the entry, false to soft expire
+     */
+    @Override
+    public synchronized void invalidate(String key, boolean fullExpire) {
+        Entry entry = get(key);
+        if (entry != null) {
+            entry.softTtl = 0;
+            if (fullExpire) {
+                entry.ttl = 0;
+            }
+            put(key, entry);
+        }
+    }
+
+    /** Puts the entry with the specified key into the cache. */
+    @Override
+    public synchronized void put(String key, Entry entry) {
+        // If adding this entry would trigger a prune, but pruning would cause the new entry to be
+        // deleted, then skip writing the entry in the first place, as this is just churn.
+        if (mTotalSize + entry.data.length > mMaxCacheSizeInBytes
+                && entry.data.length > mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+            return;
+        }
+        if (mIndexOut == null) {
+            initialize();
+            if (mIndexOut == null) {
+                return;
+            }
+        }
+        try {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            if (!new CacheHeader(key, entry).writeHeader(header)) {
+                throw new IOException("Failed to write header for " + key);
+            }
+            int length = header.size() + entry.data.length;
+            Segment segment = getWritableSegment(length);
+            long offset = append(segment, header.toByteArray(), entry.data);
+
+            long hash = hashKey(key);
+            removeEntry(hash);
+            IndexEntry indexEntry = new IndexEntry(segment.id, offset, length, entry.ttl);
+            mEntries.put(hash, indexEntry);
+            segment.liveBytes += length;
+            mTotalSize += length;
+            writePutRecord(hash, indexEntry);
+            flushIndex();
+
+            pruneIfNeeded();
+            compactIfNeeded();
+            rewriteIndexIfNeeded();
+        } catch (IOException e) {
+            VolleyLog.d("Could not write cache entry for key=%s: %s", key, e.toString());
+            initializeIfRootDirectoryDeleted();
+        }
+    }
+
+    /** Removes the specified key from the cache if it exists. */
+    @Override
+    public synchronized void remove(String key) {
+        long hash = hashKey(key);
+        if (!removeEntry(hash)) {
+            return;
+        }
+        try {
+            writeRemoveRecord(hash);
+            flushIndex();
+            deleteEmptySegments();
+            rewriteIndexIfNeeded();
+        } catch (IOException e) {
+            VolleyLog.d("Could not remove cache entry for key=%s: %s", key, e.toString());
+            initializeIfRootDirectoryDeleted();
+        }
+    }
+
+    /**
+     * Packs the two halves of the key's hash, as used by {@link DiskBasedCache} for its file
+     * names, into a single 64-bit value.
+     */
+    @VisibleForTesting
+    static long hashKey(String key) {
+        int firstHalfLength = key.length() / 2;
+        long high = key.substring(0, firstHalfLength).hashCode();
+        long low = key.substring(firstHalfLength).hashCode() & 0xFFFFFFFFL;
+        return (high << 32) | low;
+    }
+
+    /** Re-initialize the cache if the directory was deleted. */
+    private void initializeIfRootDirectoryDeleted() {
+        if (!mRootDirectorySupplier.get().exists()) {
+            VolleyLog.d("Re-initializing cache after external clearing.");
+            initialize();
+        }
+    }
+
+    /** Prunes the cache to fit the maximum size, evicting entries that are fully expired first. */
+    private void pruneIfNeeded() throws IOException {
+        if (mTotalSize < mMaxCacheSizeInBytes) {
+            return;
+        }
+        if (VolleyLog.DEBUG) {
+            VolleyLog.v("Pruning old cache entries.");
+        }
+
+        long before = mTotalSize;
+        int prunedEntries = 0;
+        long startTime = SystemClock.elapsedRealtime();
+        long now = System.currentTimeMillis();
+
+        // Expired entries can only serve conditional requests, so they are cheaper to lose.
+        for (int pass = 0; pass < 2; pass++) {
+            Iterator<Map.Entry<Long, IndexEntry>> iterator = mEntries.entrySet().iterator();
+            while (iterator.hasNext() && mTotalSize >= mMaxCacheSizeInBytes * HYSTERESIS_FACTOR) {
+                Map.Entry<Long, IndexEntry> entry = iterator.next();
+                IndexEntry e = entry.getValue();
+                if (pass == 0 && e.ttl >= now) {
+                    continue;
+                }
+                iterator.remove();
+                releaseEntry(e);
+                writeRemoveRecord(entry.getKey());
+                prunedEntries++;
+            }
+        }
+        flushIndex();
+        deleteEmptySegments();
+
+        if (VolleyLog.DEBUG) {
+            VolleyLog.v(
+                    "pruned %d entries, %d bytes, %d ms",
+                    prunedEntries,
+                    (mTotalSize - before),
+                    SystemClock.elapsedRealtime() - startTime);
+        }
+    }
+
+    /**
+     * Rewrites the live records of the oldest segments into the active one until the segment files
+     * fit the maximum cache size again.
+     */
+    private void compactIfNeeded() throws IOException {
+        // Every pass removes one segment, so bound the work by the segments present right now.
+        int remainingPasses = mSegments.size();
+        while (mDiskSize > mMaxCacheSizeInBytes && remainingPasses-- > 0) {
+            Segment oldest = mSegments.isEmpty() ? null : mSegments.firstEntry().getValue();
+            if (oldest == null || oldest == mActiveSegment) {
+                return;
+            }
+            long startTime = SystemClock.elapsedRealtime();
+            int movedEntries = 0;
+            for (Map.Entry<Long, IndexEntry> entry : mEntries.entrySet()) {
+                IndexEntry e = entry.getValue();
+                if (e.segmentId != oldest.id) {
+                    continue;
+                }
+                byte[] record = oldest.read(e.offset, e.length);
+                Segment target = getWritableSegment(e.length);
+                long offset = append(target, record, null);
+                oldest.liveBytes -= e.length;
+                target.liveBytes += e.length;
+                // Update in place so the entry keeps its position in the LRU order.
+                e.segmentId = target.id;
+                e.offset = offset;
+                writePutRecord(entry.getKey(), e);
+                movedEntries++;
+            }
+            flushIndex();
+            deleteSegment(oldest);
+
+            if (VolleyLog.DEBUG) {
+                VolleyLog.v(
+                        "compacted segment %d, moved %d entries, %d ms",
+                        oldest.id, movedEntries, SystemClock.elapsedRealtime() - startTime);
+            }
+        }
+    }
+
+    /** Returns the segment a record of the given length should be appended to. */
+    private Segment getWritableSegment(int length) throws IOException {
+        if (mActiveSegment == null
+                || (mActiveSegment.length > 0
+                        && mActiveSegment.length + length > mMaxSegmentSizeInBytes)) {
+            File file =
+                    new File(mRootDirectorySupplier.get(), SEGMENT_FILENAME_PREFIX + mNextSegmentId);
+            mActiveSegment = new Segment(mNextSegmentId, file);
+            mSegments.put(mActiveSegment.id, mActiveSegment);
+            mNextSegmentId++;
+        }
+        return mActiveSegment;
+    }
+
+    /** Appends to the given segment, keeping the on-disk size accounting up to date. */
+    private long append(Segment segment, byte[] first, byte[] second) throws IOException {
+        long sizeBefore = segment.length;
+        try {
+            return segment.append(first, second);
+        } finally {
+            mDiskSize += segment.length - sizeBefore;
+        }
+    }
+
+    /**
+     * Removes the entry identified by 'hash' from the index without writing to the index log.
+     *
+     * @return whether an entry was removed.
+     */
+    private boolean removeEntry(long hash) {
+        IndexEntry removed = mEntries.remove(hash);
+        if (removed == null) {
+            return false;
+        }
+        releaseEntry(removed);
+        return true;
+    }
+
+    /** Updates the size accounting for an entry that has been dropped from the index. */
+    private void releaseEntry(IndexEntry entry) {
+        mTotalSize -= entry.length;
+        Segment segment = mSegments.get(entry.segmentId);
+        if (segment != null) {
+            segment.liveBytes -= entry.length;
+        }
+    }
+
+    /** Deletes every segment other than the active one that no longer holds live records. */
+    private void deleteEmptySegments() {
+        List<Segment> empty = new ArrayList<>();
+        for (Segment segment : mSegments.values()) {
+            if (segment.liveBytes <= 0 && segment != mActiveSegment) {
+                empty.add(segment);
+            }
+        }
+        for (Segment segment : empty) {
+            deleteSegment(segment);
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        mSegments.remove(segment.id);
+        mDiskSize -= segment.length;
+        segment.close();
+        if (!segment.file.delete()) {
+            VolleyLog.d("Could not delete cache segment %s", segment.file.getAbsolutePath());
+        }
+    }
+
+    /** Opens every segment file in the root directory, leaving unrelated files alone. */
+    private void openSegments(File rootDirectory) {
+        File[] files = rootDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith(SEGMENT_FILENAME_PREFIX)) {
+                continue;
+            }
+            int id;
+            try {
+                id = Integer.parseInt(name.substring(SEGMENT_FILENAME_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            try {
+                Segment segment = new Segment(id, file);
+                mSegments.put(id, segment);
+                mDiskSize += segment.length;
+                mNextSegmentId = Math.max(mNextSegmentId, id + 1);
+            } catch (IOException e) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Replays the index log into {@link #mEntries}. A truncated trailing record, left behind by a
+     * process that died mid-write, is ignored.
+     */
+    private void readIndex(File indexFile) {
+        if (!indexFile.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (in.readInt() != INDEX_MAGIC) {
+                // Unknown format; every segment will be dropped as unreferenced.
+                return;
+            }
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                long hash = in.readLong();
+                if (op == OP_PUT) {
+                    int segmentId = in.readInt();
+                    long offset = in.readLong();
+                    int length = in.readInt();
+                    long ttl = in.readLong();
+                    mEntries.put(hash, new IndexEntry(segmentId, offset, length, ttl));
+                } else if (op == OP_REMOVE) {
+                    mEntries.remove(hash);
+                } else {
+                    throw new IOException("Unknown index op " + op);
+                }
+            }
+        } catch (IOException e) {
+            VolleyLog.d("%s: %s", indexFile.getAbsolutePath(), e.toString());
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Nothing left to read.
+                }
+            }
+        }
+    }
+
+    /** Rewrites the index log once it has grown well past the number of live entries. */
+    private void rewriteIndexIfNeeded() throws IOException {
+        if (mIndexRecordCount > MIN_INDEX_RECORDS_BEFORE_REWRITE
+                && mIndexRecordCount > 2 * mEntries.size()) {
+            rewriteIndex();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the live entries, in LRU order, to a new index file that atomically
+     * replaces the current one, then reopens the index log for appending.
+     */
+    private void rewriteIndex() throws IOException {
+        closeIndex();
+        File rootDirectory = mRootDirectorySupplier.get();
+        File tmpFile = new File(rootDirectory, INDEX_TMP_FILENAME);
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            out.writeInt(INDEX_MAGIC);
+            mIndexOut = out;
+            mIndexRecordCount = 0;
+            for (Map.Entry<Long, IndexEntry> entry : mEntries.entrySet()) {
+                writePutRecord(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            mIndexOut = null;
+            out.close();
+        }
+        File indexFile = new File(rootDirectory, INDEX_FILENAME);
+        if (!tmpFile.renameTo(indexFile)) {
+            throw new IOException("Unable to replace " + indexFile.getAbsolutePath());
+        }
+        mIndexOut =
+                new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    }
+
+    private void writePutRecord(long hash, IndexEntry entry) throws IOException {
+        mIndexOut.writeByte(OP_PUT);
+        mIndexOut.writeLong(hash);
+        mIndexOut.writeInt(entry.segmentId);
+        mIndexOut.writeLong(entry.offset);
+        mIndexOut.writeInt(entry.length);
+        mIndexOut.writeLong(entry.ttl);
+        mIndexRecordCount++;
+    }
+
+    private void writeRemoveRecord(long hash) throws IOException {
+        mIndexOut.writeByte(OP_REMOVE);
+        mIndexOut.writeLong(hash);
+        mIndexRecordCount++;
+    }
+
+    private void flushIndex() throws IOException {
+        mIndexOut.flush();
+    }
+
+    private void closeIndex() {
+        if (mIndexOut != null) {
+            try {
+                mIndexOut.close();
+            } catch (IOException e) {
+                VolleyLog.d("Error closing cache index: %s", e.toString());
+            }
+            mIndexOut = null;
+        }
+    }
+
+    private void closeFiles() {
+        closeIndex();
+        for (Segment segment : mSegments.values()) {
+            segment.close();
+        }
+    }
+
+    private void resetState() {
+        mEntries.clear();
+        mSegments.clear();
+        mActiveSegment = null;
+        mNextSegmentId = 0;
+        mTotalSize = 0;
+        mDiskSize = 0;
+        mIndexRecordCount = 0;
+    }
+
+    private static boolean isCacheFile(String name) {
+        return INDEX_FILENAME.equals(name)
+                || INDEX_TMP_FILENAME.equals(name)
+                || name.startsWith(SEGMENT_FILENAME_PREFIX);
+    }
+
+    /** Location and expiry of a record, as kept in the index. */
+    private static class IndexEntry {
+        int segmentId;
+        long offset;
+        final int length;
+        final long ttl;
+
+        IndexEntry(int segmentId, long offset, int length, long ttl) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.length = length;
+            this.ttl = ttl;
+        }
+    }
+
+    /** An open, append-only segment file. */
+    private static class Segment {
+        final int id;
+        final File file;
+        private final RandomAccessFile mFile;
+        private final FileChannel mChannel;
+
+        /** Size of the file in bytes. */
+        long length;
+
+        /** Bytes in this segment that belong to records still referenced by the index. */
+        long liveBytes;
+
+        Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            mFile = new RandomAccessFile(file, "rw");
+            mChannel = mFile.getChannel();
+            length = mChannel.size();
+        }
+
+        /** Reads {@code length} bytes at {@code offset} with a single positioned read. */
+        byte[] read(long offset, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (mChannel.read(buffer, offset + buffer.position()) == -1) {
+                    throw new EOFException();
+                }
+            }
+            return bytes;
+        }
+
+        /**
+         * Appends {@code first} and, if non-null, {@code second} to the end of the segment.
+         *
+         * @return the offset the record was written at.
+         */
+        long append(byte[] first, byte[] second) throws IOException {
+            long offset = length;
+            ByteBuffer[] buffers =
+                    second == null
+                            ? new ByteBuffer[] {ByteBuffer.wrap(first)}
+                            : new ByteBuffer[] {ByteBuffer.wrap(first), ByteBuffer.wrap(second)};
+            try {
+                mChannel.position(offset);
+                while (buffers[buffers.length - 1].hasRemaining()) {
+                    mChannel.write(buffers);
+                }
+            } catch (IOException e) {
+                // Leave the segment consistent with whatever made it to disk.
+                length = mChannel.size();
+                throw e;
+            }
+            length = mChannel.position();
+            return offset;
+        }
+
+        void close() {
+            try {
+                mFile.close();
+            } catch (IOException e) {
+                VolleyLog.d("Error closing %s: %s", file.getAbsolutePath(), e.toString());
+            }
+        }
+    }
+}
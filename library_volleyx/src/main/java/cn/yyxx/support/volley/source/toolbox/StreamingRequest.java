@@ -0,0 +1,303 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import cn.yyxx.support.volley.source.Cache;
+import cn.yyxx.support.volley.source.Header;
+import cn.yyxx.support.volley.source.NetworkResponse;
+import cn.yyxx.support.volley.source.ParseError;
+import cn.yyxx.support.volley.source.Request;
+import cn.yyxx.support.volley.source.Response;
+import cn.yyxx.support.volley.source.Response.ErrorListener;
+import cn.yyxx.support.volley.source.Response.Listener;
+import cn.yyxx.support.volley.source.VolleyError;
+import cn.yyxx.support.volley.source.VolleyLog;
+
+/**
+ * A request whose response body is parsed straight off the network stream instead of being read
+ * into a byte[] first.
+ *
+ * <p>When performed by {@link BasicNetwork} or {@link BasicAsyncNetwork}, a successful response
+ * body is handed to {@link #parseStream} on the thread reading from the network, so the parser
+ * pulls bytes as fast as it can consume them and never more than that. The {@link
+ * NetworkResponse} that reaches {@link #parseNetworkResponse} then only carries the parsed result.
+ *
+ * <p>Bodies are only buffered if the request should be cached and a cache limit has been set with
+ * {@link #setMaxCacheBytes}; the bytes read by the parser are then copied into a pooled buffer of
+ * at most that size and stored in the cache along with the parsed result. Bodies larger than the
+ * limit are not cached. Cached responses are parsed from memory with the same {@link #parseStream}.
+ *
+ * <p>The parsed result usually belongs to this request alone, e.g. the file a download was written
+ * to, so streaming requests are not {@link Request#setShouldCoalesce coalesced} unless enabled.
+ *
+ * @param <T> The type of parsed response this request expects.
+ */
+public abstract class StreamingRequest<T> extends Request<T> {
+
+    /** Lock to guard mListener as it is cleared on cancel() and read on delivery. */
+    private final Object mLock = new Object();
+
+    @Nullable
+    @GuardedBy("mLock")
+    private Listener<T> mListener;
+
+    /** Maximum size of a body copied into the cache, or 0 to not cache streamed bodies. */
+    private volatile int mMaxCacheBytes = 0;
+
+    /**
+     * Creates a new request with the given method.
+     *
+     * @param method the request {@link Method} to use
+     * @param url URL to fetch the response at
+     * @param listener Listener to receive the parsed response
+     * @param errorListener Error listener, or null to ignore errors
+     */
+    public StreamingRequest(
+            int method, String url, Listener<T> listener, @Nullable ErrorListener errorListener) {
+        super(method, url, errorListener);
+        mListener = listener;
+        setShouldCoalesce(false);
+    }
+
+    /**
+     * Creates a new GET request.
+     *
+     * @param url URL to fetch the response at
+     * @param listener Listener to receive the parsed response
+     * @param errorListener Error listener, or null to ignore errors
+     */
+    public StreamingRequest(
+            String url, Listener<T> listener, @Nullable ErrorListener errorListener) {
+        this(Method.GET, url, listener, errorListener);
+    }
+
+    /**
+     * Sets the maximum size of a response body that is copied into the cache while it is streamed
+     * to the parser. Bodies larger than this are parsed but not cached. Defaults to 0, which
+     * disables caching of streamed bodies.
+     */
+    public void setMaxCacheBytes(int maxCacheBytes) {
+        mMaxCacheBytes = maxCacheBytes;
+    }
+
+    /**
+     * Parses the response body as it is read. Called on a network thread for responses from the
+     * network and on a cache thread for responses from the cache.
+     *
+     * @param in the response body. Should not be closed by the implementation.
+     * @param headers the response headers
+     * @return the parsed response
+     * @throws IOException if reading from the stream fails; the request will be retried according
+     *     to its retry policy
+     * @throws ParseError if the body can't be parsed
+     */
+    protected abstract T parseStream(InputStream in, List<Header> headers)
+            throws IOException, ParseError;
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        synchronized (mLock) {
+            mListener = null;
+        }
+    }
+
+    @Override
+    protected void deliverResponse(T response) {
+        Listener<T> listener;
+        synchronized (mLock) {
+            listener = mListener;
+        }
+        if (listener != null) {
+            listener.onResponse(response);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected final Response<T> parseNetworkResponse(NetworkResponse response) {
+        if (response instanceof StreamedNetworkResponse) {
+            StreamedNetworkResponse streamed = (StreamedNetworkResponse) response;
+            Cache.Entry cacheEntry =
+                    streamed.mCached ? HttpHeaderParser.parseCacheHeaders(response) : null;
+            return Response.success((T) streamed.mResult, cacheEntry);
+        }
+        // The body was read by a network that doesn't stream, or comes from the cache.
+        try {
+            T result = parseStream(new ByteArrayInputStream(response.data), response.allHeaders);
+            return Response.success(result, HttpHeaderParser.parseCacheHeaders(response));
+        } catch (IOException e) {
+            return Response.error(new ParseError(e));
+        } catch (ParseError e) {
+            return Response.error(e);
+        }
+    }
+
+    /**
+     * Parses the body of a successful response off the network stream and closes the stream.
+     *
+     * @throws IOException if reading from the stream fails
+     * @throws VolleyError if the body can't be parsed
+     */
+    NetworkResponse consumeContent(
+            InputStream in,
+            int statusCode,
+            List<Header> headers,
+            long requestStartMs,
+            ByteArrayPool pool)
+            throws IOException, VolleyError {
+        int maxCacheBytes = shouldCache() ? mMaxCacheBytes : 0;
+        CacheTeeInputStream tee = null;
+        try {
+            InputStream source = in;
+            if (maxCacheBytes > 0) {
+                tee = new CacheTeeInputStream(in, pool, maxCacheBytes);
+                source = tee;
+            }
+            T result = parseStream(source, headers);
+            byte[] cachedBody = null;
+            if (tee != null) {
+                // Drain what the parser left unread so the cached body is complete.
+                tee.drain();
+                cachedBody = tee.toByteArray();
+            }
+            addMarker("network-stream-parse-complete");
+            return new StreamedNetworkResponse(
+                    statusCode,
+                    cachedBody,
+                    SystemClock.elapsedRealtime() - requestStartMs,
+                    headers,
+                    result);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                VolleyLog.v("Error occurred when closing InputStream");
+            }
+            if (tee != null) {
+                tee.release();
+            }
+        }
+    }
+
+    /** A network response carrying the result parsed off the stream. */
+    private static class StreamedNetworkResponse extends NetworkResponse {
+        private final Object mResult;
+        private final boolean mCached;
+
+        StreamedNetworkResponse(
+                int statusCode,
+                @Nullable byte[] cachedBody,
+                long networkTimeMs,
+                List<Header> headers,
+                Object result) {
+            super(
+                    statusCode,
+                    cachedBody != null ? cachedBody : new byte[0],
+                    /* notModified= */ false,
+                    networkTimeMs,
+                    headers);
+            mResult = result;
+            mCached = cachedBody != null;
+        }
+    }
+
+    /**
+     * Copies the bytes read through it into a pooled buffer, giving up once more than the given
+     * number of bytes have been read.
+     */
+    private static class CacheTeeInputStream extends FilterInputStream {
+        private final int mMaxBytes;
+        private PoolingByteArrayOutputStream mCopy;
+
+        CacheTeeInputStream(InputStream in, ByteArrayPool pool, int maxBytes) {
+            super(in);
+            mMaxBytes = maxBytes;
+            mCopy = new PoolingByteArrayOutputStream(pool);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1 && mCopy != null) {
+                mCopy.write(result);
+                checkLimit();
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int result = super.read(buffer, offset, count);
+            if (result > 0 && mCopy != null) {
+                mCopy.write(buffer, offset, result);
+                checkLimit();
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long byteCount) throws IOException {
+            // Skipped bytes would be missing from the copy; read them instead.
+            byte[] buffer = new byte[(int) Math.min(byteCount, 512)];
+            long skipped = 0;
+            while (skipped < byteCount) {
+                int count = read(buffer, 0, (int) Math.min(buffer.length, byteCount - skipped));
+                if (count == -1) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /** Reads the rest of the stream into the copy, unless the copy was already given up. */
+        void drain() throws IOException {
+            if (mCopy == null) {
+                return;
+            }
+            byte[] buffer = new byte[512];
+            while (mCopy != null && read(buffer, 0, buffer.length) != -1) {
+                // Keep reading until the end of the stream or the limit is reached.
+            }
+        }
+
+        /** Returns the copied bytes, or null if the stream was larger than the limit. */
+        @Nullable
+        byte[] toByteArray() {
+            return mCopy != null ? mCopy.toByteArray() : null;
+        }
+
+        /** Returns the pooled buffer. */
+        void release() {
+            if (mCopy != null) {
+                try {
+                    mCopy.close();
+                } catch (IOException e) {
+                    // Closing a PoolingByteArrayOutputStream only returns its buffer.
+                }
+                mCopy = null;
+            }
+        }
+
+        private void checkLimit() {
+            if (mCopy.size() > mMaxBytes) {
+                release();
+            }
+        }
+    }
+}
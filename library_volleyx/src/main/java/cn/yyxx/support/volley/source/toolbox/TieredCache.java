@@ -0,0 +1,235 @@
+package cn.yyxx.support.volley.source.toolbox;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cn.yyxx.support.volley.source.Cache;
+import cn.yyxx.support.volley.source.VolleyLog;
+
+/**
+ * Cache that keeps recently used entries in memory in front of another {@link Cache}, typically a
+ * {@link DiskBasedCache}.
+ *
+ * <p>Writes go through to the backing cache. Entries read from the backing cache are promoted into
+ * memory, so repeated hits on small, frequently requested responses don't pay for file I/O. The
+ * memory tier is bounded by the total size of the entry data and evicts the least recently used
+ * entries first. Entries larger than a configurable limit are only stored in the backing cache.
+ *
+ * <p>Register the cache with {@link android.content.Context#registerComponentCallbacks} to shrink
+ * the memory tier when the system is low on memory.
+ */
+public class TieredCache implements Cache, ComponentCallbacks2 {
+
+    /** Default maximum size of the memory tier in bytes. */
+    private static final int DEFAULT_MEMORY_BYTES = 1024 * 1024;
+
+    /** The cache that entries are written through to. */
+    private final Cache mBackingCache;
+
+    /** Map of the Key, Entry pairs held in memory, in access order. Guarded by this. */
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>(16, .75f, true);
+
+    /** Maximum size of the memory tier in bytes. */
+    private final int mMaxMemoryBytes;
+
+    /** Maximum size of an entry's data for it to be held in memory. */
+    private final int mMaxEntryBytes;
+
+    /** Total size of the entry data held in memory. Guarded by this. */
+    private long mMemorySize = 0;
+
+    /**
+     * Incremented on every change to the cache contents. Guarded by this.
+     *
+     * <p>An entry read from the backing cache is only promoted if nothing changed during the read,
+     * so a concurrent remove or put can't be undone by a stale promotion.
+     */
+    private long mGeneration = 0;
+
+    /**
+     * Constructs a TieredCache in front of the specified cache.
+     *
+     * @param backingCache The cache to write entries through to.
+     * @param maxMemoryBytes The maximum total size of the entry data held in memory.
+     * @param maxEntryBytes The maximum size of a single entry's data for it to be held in memory.
+     */
+    public TieredCache(Cache backingCache, int maxMemoryBytes, int maxEntryBytes) {
+        mBackingCache = backingCache;
+        mMaxMemoryBytes = maxMemoryBytes;
+        mMaxEntryBytes = Math.min(maxEntryBytes, maxMemoryBytes);
+    }
+
+    /**
+     * Constructs a TieredCache in front of the specified cache. Entries up to an eighth of the
+     * memory budget are held in memory.
+     *
+     * @param backingCache The cache to write entries through to.
+     * @param maxMemoryBytes The maximum total size of the entry data held in memory.
+     */
+    public TieredCache(Cache backingCache, int maxMemoryBytes) {
+        this(backingCache, maxMemoryBytes, maxMemoryBytes / 8);
+    }
+
+    /**
+     * Constructs a TieredCache in front of the specified cache with a 1MB memory tier.
+     *
+     * @param backingCache The cache to write entries through to.
+     */
+    public TieredCache(Cache backingCache) {
+        this(backingCache, DEFAULT_MEMORY_BYTES);
+    }
+
+    @Override
+    public Entry get(String key) {
+        long generation;
+        synchronized (this) {
+            Entry entry = mEntries.get(key);
+            if (entry != null) {
+                return entry;
+            }
+            generation = mGeneration;
+        }
+        Entry entry = mBackingCache.get(key);
+        if (entry != null) {
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    putInMemory(key, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void put(String key, Entry entry) {
+        synchronized (this) {
+            mGeneration++;
+            putInMemory(key, entry);
+        }
+        mBackingCache.put(key, entry);
+    }
+
+    @Override
+    public void initialize() {
+        mBackingCache.initialize();
+    }
+
+    @Override
+    public void invalidate(String key, boolean fullExpire) {
+        synchronized (this) {
+            mGeneration++;
+            Entry entry = mEntries.get(key);
+            if (entry != null) {
+                // Entries returned by get() may still be in use, so replace rather than mutate.
+                Entry invalidated = copyOf(entry);
+                invalidated.softTtl = 0;
+                if (fullExpire) {
+                    invalidated.ttl = 0;
+                }
+                mEntries.put(key, invalidated);
+            }
+        }
+        mBackingCache.invalidate(key, fullExpire);
+    }
+
+    @Override
+    public void remove(String key) {
+        synchronized (this) {
+            mGeneration++;
+            removeFromMemory(key);
+        }
+        mBackingCache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            mGeneration++;
+            mEntries.clear();
+            mMemorySize = 0;
+        }
+        mBackingCache.clear();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // The process is likely to be killed soon; release everything.
+            trimToSize(0);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // Running low, hidden or in the background; keep the most recently used half.
+            trimToSize(mMaxMemoryBytes / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        trimToSize(0);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+
+    /** Returns the total size of the entry data currently held in memory. */
+    @VisibleForTesting
+    synchronized long getMemorySize() {
+        return mMemorySize;
+    }
+
+    /**
+     * Evicts least recently used entries from memory until the memory tier is no larger than the
+     * given size. Entries stay available in the backing cache.
+     */
+    public synchronized void trimToSize(long maxBytes) {
+        long before = mMemorySize;
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mMemorySize > maxBytes && iterator.hasNext()) {
+            mMemorySize -= iterator.next().getValue().data.length;
+            iterator.remove();
+        }
+        if (VolleyLog.DEBUG && before != mMemorySize) {
+            VolleyLog.v("trimmed memory cache from %d to %d bytes", before, mMemorySize);
+        }
+    }
+
+    /** Puts the entry into memory if it is small enough. Must be called holding this lock. */
+    private void putInMemory(String key, Entry entry) {
+        removeFromMemory(key);
+        if (entry.data == null || entry.data.length > mMaxEntryBytes) {
+            return;
+        }
+        mEntries.put(key, entry);
+        mMemorySize += entry.data.length;
+        if (mMemorySize > mMaxMemoryBytes) {
+            trimToSize(mMaxMemoryBytes);
+        }
+    }
+
+    /** Removes the entry from memory if present. Must be called holding this lock. */
+    private void removeFromMemory(String key) {
+        Entry removed = mEntries.remove(key);
+        if (removed != null) {
+            mMemorySize -= removed.data.length;
+        }
+    }
+
+    private static Entry copyOf(Entry entry) {
+        Entry copy = new Entry();
+        copy.data = entry.data;
+        copy.etag = entry.etag;
+        copy.serverDate = entry.serverDate;
+        copy.lastModified = entry.lastModified;
+        copy.ttl = entry.ttl;
+        copy.softTtl = entry.softTtl;
+        copy.responseHeaders = entry.responseHeaders;
+        copy.allResponseHeaders = entry.allResponseHeaders;
+        return copy;
+    }
+}